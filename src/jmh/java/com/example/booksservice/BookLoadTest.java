@@ -0,0 +1,153 @@
+package com.example.booksservice;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator: keeps {@code LOAD_CLIENTS} requests in flight against a running instance for
+ * {@code LOAD_DURATION_SECONDS} and prints throughput, latency percentiles, status counts and how long requests
+ * waited for a pooled connection. Run it once against an instance with {@code BOOK_VIRTUAL_THREADS_ENABLED=false}
+ * and once with {@code true} to compare, e.g. {@code LOAD_URL=http://localhost:8082/book/1 mvn -P benchmark
+ * test-compile exec:exec -Dbenchmark.main=com.example.booksservice.BookLoadTest}. To compare the
+ * {@code high-throughput} profile with the default one, start the instance with {@code SPRING_CACHE_TYPE=none} so
+ * reads reach the database, and load {@code /book/1} for the read path and {@code /external/book/status/1} for the
+ * write path.
+ */
+public final class BookLoadTest {
+    private static final String SECRET = "jwtyandexzen";
+    private static final String ACQUIRE_COUNT = "hikaricp_connections_acquire_seconds_count";
+    private static final String ACQUIRE_SUM = "hikaricp_connections_acquire_seconds_sum";
+    private static final String ACQUIRE_MAX = "hikaricp_connections_acquire_seconds_max";
+    private static final String TIMEOUTS = "hikaricp_connections_timeout_total";
+
+    private BookLoadTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        URI uri = URI.create(env("LOAD_URL", "http://localhost:8082/book/1"));
+        int clients = Integer.parseInt(env("LOAD_CLIENTS", "5000"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(env("LOAD_DURATION_SECONDS", "60")));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        String authorization = "Bearer " + token(env("LOAD_JWT_SECRET", SECRET));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", authorization)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        Timer latency = Timer.builder("load.latency")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(new SimpleMeterRegistry());
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        URI metrics = uri.resolve("/actuator/prometheus");
+        Map<String, Double> poolBefore = poolMetrics(client, metrics, authorization);
+        Semaphore inFlight = new Semaphore(clients);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        while (System.nanoTime() < deadline) {
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+                latency.record(System.nanoTime() - sent, TimeUnit.NANOSECONDS);
+                String outcome = ex == null ? String.valueOf(response.statusCode()) : ex.getClass().getSimpleName();
+                outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(clients);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Map<String, Double> poolAfter = poolMetrics(client, metrics, authorization);
+
+        System.out.printf("%s, %d clients, %.1f s%n", uri, clients, seconds);
+        System.out.printf("requests %d, throughput %.1f req/s%n", latency.count(), latency.count() / seconds);
+        for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+            System.out.printf("p%s %.1f ms%n", percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS));
+        }
+        outcomes.forEach((outcome, count) -> System.out.printf("%s: %d%n", outcome, count.sum()));
+        if (poolBefore.isEmpty() || poolAfter.isEmpty()) {
+            System.out.println("pool wait: " + metrics + " not reachable");
+            return;
+        }
+        double acquired = delta(poolBefore, poolAfter, ACQUIRE_COUNT);
+        System.out.printf("pool acquisitions %.0f, mean wait %.3f ms, max wait %.1f ms, timeouts %.0f%n",
+                acquired,
+                acquired == 0 ? 0 : delta(poolBefore, poolAfter, ACQUIRE_SUM) * 1000 / acquired,
+                poolAfter.getOrDefault(ACQUIRE_MAX, 0.0) * 1000,
+                delta(poolBefore, poolAfter, TIMEOUTS));
+    }
+
+    /**
+     * Hikari's acquire timer and timeout counter from the Prometheus endpoint, summed over pools; empty if the
+     * endpoint cannot be read. The endpoint needs the same bearer token as the load requests.
+     */
+    private static Map<String, Double> poolMetrics(HttpClient client, URI metrics, String authorization)
+            throws InterruptedException {
+        Map<String, Double> values = new HashMap<>();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(metrics)
+                    .header("Authorization", authorization)
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return values;
+            }
+            for (String line : response.body().split("\n")) {
+                int labels = line.indexOf('{');
+                int value = line.lastIndexOf(' ');
+                if (line.startsWith("#") || value < 0) {
+                    continue;
+                }
+                String name = line.substring(0, labels < 0 ? value : labels);
+                if (name.equals(ACQUIRE_COUNT) || name.equals(ACQUIRE_SUM) || name.equals(TIMEOUTS)) {
+                    values.merge(name, Double.parseDouble(line.substring(value + 1)), Double::sum);
+                } else if (name.equals(ACQUIRE_MAX)) {
+                    values.merge(name, Double.parseDouble(line.substring(value + 1)), Math::max);
+                }
+            }
+        } catch (IOException ex) {
+            values.clear();
+        }
+        return values;
+    }
+
+    private static double delta(Map<String, Double> before, Map<String, Double> after, String name) {
+        return after.getOrDefault(name, 0.0) - before.getOrDefault(name, 0.0);
+    }
+
+    private static String token(String secret) {
+        return JWT.create()
+                .withIssuer("library2")
+                .withClaim("userId", "1")
+                .withClaim("roles", List.of("ADMIN"))
+                .withExpiresAt(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(2)))
+                .sign(Algorithm.HMAC256(Base64.getEncoder().encodeToString(secret.getBytes())));
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.booksservice.dto;
+
+import com.example.booksservice.configuration.CompactJsonConfiguration;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of serializing a {@link ListBookResponse} with the ObjectMapper Spring MVC uses, in the default JSON form
+ * and in the compact bitmask form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListBookResponseBenchmark {
+    private static final Genre[] GENRES = Genre.values();
+
+    @Param({"1000", "100000"})
+    private int books;
+
+    @Param({"json", "compact"})
+    private String format;
+
+    private ObjectWriter writer;
+    private ListBookResponse response;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        if ("compact".equals(format)) {
+            objectMapper = CompactJsonConfiguration.compactObjectMapper(objectMapper);
+        }
+        writer = objectMapper.writerFor(ListBookResponse.class);
+        List<BookResponse> responseList = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            responseList.add(BookResponse.builder()
+                    .title("Title " + i)
+                    .author("Author " + i % 1000)
+                    .description("Description of book " + i)
+                    .ISBN(String.format("%013d", i))
+                    .genre(EnumSet.of(GENRES[i % GENRES.length], GENRES[(i * 7 + 3) % GENRES.length]))
+                    .status(EnumSet.of(i % 2 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE))
+                    .build());
+        }
+        response = ListBookResponse.builder().responseList(responseList).build();
+    }
+
+    @Benchmark
+    public void writeValue() throws IOException {
+        writer.writeValue(OutputStream.nullOutputStream(), response);
+    }
+}
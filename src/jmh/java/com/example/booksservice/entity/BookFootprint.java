@@ -0,0 +1,101 @@
+package com.example.booksservice.entity;
+
+import com.example.booksservice.configuration.CompactJsonConfiguration;
+import com.example.booksservice.dto.BookResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Heap and payload footprint of 1M books: genres as a {@code HashSet} versus an {@code EnumSet}, and the default
+ * JSON versus the compact bitmask form. Not a JMH benchmark; run it with
+ * {@code mvn -P benchmark test-compile exec:exec -Dbenchmark.main=com.example.booksservice.entity.BookFootprint}.
+ */
+public final class BookFootprint {
+    private static final int BOOKS = 1_000_000;
+    private static final Genre[] GENRES = Genre.values();
+
+    private BookFootprint() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        long hashSetBooks = heapSize(books(HashSet::new));
+        long enumSetBooks = heapSize(books(() -> EnumSet.noneOf(Genre.class)));
+        report("heap, Book with HashSet<Genre>", hashSetBooks, hashSetBooks);
+        report("heap, Book with EnumSet<Genre>", enumSetBooks, hashSetBooks);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        long json = payloadSize(objectMapper);
+        long compactJson = payloadSize(CompactJsonConfiguration.compactObjectMapper(objectMapper));
+        report("payload, application/json", json, json);
+        report("payload, " + CompactJsonConfiguration.COMPACT_JSON_VALUE, compactJson, json);
+    }
+
+    private static List<Book> books(Supplier<Set<Genre>> genreSets) {
+        List<Book> books = new ArrayList<>(BOOKS);
+        for (int i = 0; i < BOOKS; i++) {
+            Set<Genre> genres = genreSets.get();
+            genres.addAll(genres(i));
+            books.add(Book.builder()
+                    .id(i)
+                    .title("Title " + i)
+                    .author("Author " + i % 10_000)
+                    .ISBN(String.format("%013d", i))
+                    .description("Description " + i)
+                    .genre(genres)
+                    .status(i % 2 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE)
+                    .build());
+        }
+        return books;
+    }
+
+    private static List<Genre> genres(int i) {
+        return List.of(GENRES[i % GENRES.length], GENRES[(i * 7 + 3) % GENRES.length]);
+    }
+
+    private static long heapSize(List<Book> books) {
+        return GraphLayout.parseInstance(books).totalSize();
+    }
+
+    private static long payloadSize(ObjectMapper objectMapper) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        for (int i = 0; i < BOOKS; i++) {
+            objectMapper.writeValue(out, BookResponse.builder()
+                    .title("Title " + i)
+                    .author("Author " + i % 10_000)
+                    .ISBN(String.format("%013d", i))
+                    .description("Description " + i)
+                    .genre(EnumSet.copyOf(genres(i)))
+                    .status(EnumSet.of(i % 2 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE))
+                    .build());
+        }
+        return out.count;
+    }
+
+    private static void report(String label, long bytes, long baseline) {
+        System.out.printf("%-45s %,15d bytes %8.1f bytes/book %6.1f%%%n",
+                label, bytes, (double) bytes / BOOKS, 100.0 * bytes / baseline);
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
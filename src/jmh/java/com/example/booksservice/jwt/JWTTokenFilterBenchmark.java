@@ -0,0 +1,56 @@
+package com.example.booksservice.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authenticating a replayed bearer token; {@code cacheMaximumSize = 0} is the uncached baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTTokenFilterBenchmark {
+    private static final String SECRET = "jwtyandexzen";
+
+    @Param({"0", "10000"})
+    private long cacheMaximumSize;
+
+    private JWTTokenFilter filter;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        filter = new JWTTokenFilter(new JWTTokenProvider(SECRET, cacheMaximumSize, new SimpleMeterRegistry()));
+        String token = JWT.create()
+                .withIssuer("library2")
+                .withClaim("userId", "1")
+                .withClaim("roles", List.of("ADMIN"))
+                .withExpiresAt(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .sign(Algorithm.HMAC256(Base64.getEncoder().encodeToString(SECRET.getBytes())));
+        request = new MockHttpServletRequest("GET", "/book/books");
+        request.addHeader("Authorization", "Bearer " + token);
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
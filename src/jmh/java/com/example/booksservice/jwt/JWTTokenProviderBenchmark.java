@@ -0,0 +1,47 @@
+package com.example.booksservice.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link JWTTokenProvider#validateToken} for a replayed token; {@code cacheMaximumSize = 0} verifies the
+ * HMAC and parses the claims on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JWTTokenProviderBenchmark {
+    private static final String SECRET = "jwtyandexzen";
+
+    @Param({"0", "10000"})
+    private long cacheMaximumSize;
+
+    private JWTTokenProvider provider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        provider = new JWTTokenProvider(SECRET, cacheMaximumSize, new SimpleMeterRegistry());
+        token = JWT.create()
+                .withIssuer("library2")
+                .withClaim("userId", "1")
+                .withClaim("roles", List.of("ADMIN"))
+                .withExpiresAt(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .sign(Algorithm.HMAC256(Base64.getEncoder().encodeToString(SECRET.getBytes())));
+    }
+
+    @Benchmark
+    public Object validateToken() throws JWTAuthenticationException {
+        return provider.validateToken(token);
+    }
+}
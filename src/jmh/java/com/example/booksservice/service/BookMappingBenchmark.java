@@ -0,0 +1,49 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.mapper.BookMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a {@link Book} into a {@link BookResponse}, through MapStruct and through the hand-written
+ * mapping the service uses on its read paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookMappingBenchmark {
+    private final BookService bookService = new BookService();
+    private Book book;
+
+    @Setup
+    public void setUp() {
+        book = Book.builder()
+                .id(1L)
+                .title("The Little Prince")
+                .author("Antoine de Saint-Exupery")
+                .description("The fairy tale tells about a Little Prince who visit various planets")
+                .ISBN("9785171078311")
+                .genre(EnumSet.of(Genre.TALE, Genre.FANTASY))
+                .status(Status.AVAILABLE)
+                .build();
+    }
+
+    @Benchmark
+    public BookResponse bookMapper() {
+        return BookMapper.INSTANCE.bookToBookDto(book);
+    }
+
+    @Benchmark
+    public BookResponse createdBookResponse() {
+        return bookService.createdBookResponse(book);
+    }
+}
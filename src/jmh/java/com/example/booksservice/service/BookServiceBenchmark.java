@@ -0,0 +1,141 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.BooksServiceApplication;
+import com.example.booksservice.dto.BookPageResponse;
+import com.example.booksservice.dto.BookRequest;
+import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.repository.BookRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link BookService} read and write paths against the full application context on an in-memory H2 database in
+ * PostgreSQL mode. Full-text search needs PostgreSQL and is not covered here; the change outbox is created by hand
+ * since Flyway is off, and its relay is disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+    private static final int BATCH_SIZE = 1000;
+    private static final long NEW_ISBN_OFFSET = 1_000_000_000_000L;
+    private static final Genre[] GENRES = Genre.values();
+    private static final String CREATE_BOOK_CHANGES = "CREATE TABLE book_service_schema.book_changes (" +
+            "id BIGSERIAL PRIMARY KEY, feed_seq BIGINT, book_id BIGINT NOT NULL, isbn VARCHAR(255), " +
+            "type VARCHAR(16) NOT NULL, status VARCHAR(16), created_at TIMESTAMP WITH TIME ZONE DEFAULT now())";
+
+    @Param({"10000"})
+    private int books;
+
+    @Param({"caffeine", "none"})
+    private String cacheType;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private long firstId;
+    private final AtomicLong nextISBN = new AtomicLong(NEW_ISBN_OFFSET);
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BooksServiceApplication.class)
+                .profiles("h2")
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:books;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;" +
+                                "DB_CLOSE_DELAY=-1;IGNORE_UNKNOWN_SETTINGS=TRUE",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "spring.jpa.properties.hibernate.generate_statistics=false",
+                        "spring.cache.type=" + cacheType,
+                        "book.changes.relay-enabled=false",
+                        "eureka.client.enabled=false",
+                        "library2.url=http://localhost:0",
+                        "server.port=0")
+                .run();
+        bookService = context.getBean(BookService.class);
+        context.getBean(JdbcTemplate.class).execute(CREATE_BOOK_CHANGES);
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+        for (int start = 0; start < books; start += BATCH_SIZE) {
+            List<Book> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = start; i < Math.min(start + BATCH_SIZE, books); i++) {
+                batch.add(book(i));
+            }
+            transactionTemplate.executeWithoutResult(status -> bookRepository.saveAll(batch));
+        }
+        firstId = bookRepository.findIdsAfter(0L, PageRequest.of(0, 1)).get(0);
+        context.getBean(BookBitmapIndex.class).rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BookResponse findById() {
+        return bookService.findById(randomId()).orElseThrow();
+    }
+
+    @Benchmark
+    public BookPageResponse findPage() {
+        return bookService.findPage(null, 50);
+    }
+
+    @Benchmark
+    public BookPageResponse filter() {
+        return bookService.filter(Set.of(Genre.TALE), Status.AVAILABLE, null, 50);
+    }
+
+    @Benchmark
+    public void updateBookStatus() {
+        bookService.updateBookStatus(randomId());
+    }
+
+    @Benchmark
+    public void createAndDeleteBook() {
+        String ISBN = String.format("%013d", nextISBN.getAndIncrement());
+        bookService.createBook(BookRequest.builder()
+                .title("Benchmark book")
+                .author("Benchmark author")
+                .description("Created and deleted by the benchmark")
+                .ISBN(ISBN)
+                .genre(EnumSet.of(Genre.TALE))
+                .status(EnumSet.of(Status.AVAILABLE))
+                .build());
+        bookService.deleteBookByISBN(ISBN);
+    }
+
+    private long randomId() {
+        return firstId + ThreadLocalRandom.current().nextInt(books);
+    }
+
+    private static Book book(int i) {
+        return Book.builder()
+                .title("Title " + i)
+                .author("Author " + i % 1000)
+                .description("Description of book " + i)
+                .ISBN(String.format("%013d", i))
+                .genre(EnumSet.of(GENRES[i % GENRES.length], GENRES[(i * 7 + 3) % GENRES.length]))
+                .status(i % 2 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE)
+                .build();
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.booksservice.configuration;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables Spring Boot's cache auto-configuration; the caches themselves are declared in application.properties.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+}
@@ -0,0 +1,116 @@
+package com.example.booksservice.configuration;
+
+import com.example.booksservice.service.CatalogueVersion;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Answers catalogue reads with a strong ETag and Last-Modified taken from {@link CatalogueVersion}, and with 304
+ * before the handler runs when the client already has the current version. The ETag also covers the Accept header,
+ * since JSON, compact JSON and NDJSON are different representations of the same resource.
+ * <p>
+ * The validators are read before the handler runs but only added to 2xx responses, as the body is written, so an
+ * error is never cached as the current version. Streamed responses are committed with 200 before their body exists
+ * and get them up front.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "book.read-replicas.enabled", havingValue = "false", matchIfMissing = true)
+public class CatalogueETagInterceptor implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+    private final static String VALIDATORS = CatalogueETagInterceptor.class.getName() + ".VALIDATORS";
+
+    private final CatalogueVersion catalogueVersion;
+
+    public CatalogueETagInterceptor(CatalogueVersion catalogueVersion) {
+        this.catalogueVersion = catalogueVersion;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST
+                || !(HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod()))) {
+            return true;
+        }
+        CatalogueVersion.Snapshot snapshot = catalogueVersion.current();
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        Validators validators = new Validators("\"" + catalogueVersion.tag(snapshot)
+                + (accept == null ? "" : "-" + Integer.toHexString(accept.hashCode())) + "\"",
+                snapshot.lastModified());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (new ServletWebRequest(request).checkNotModified(validators.etag(), validators.lastModified())) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            validators.applyTo(response);
+            return false;
+        }
+        if (handler instanceof HandlerMethod handlerMethod && streams(handlerMethod.getReturnType())) {
+            validators.applyTo(response);
+        } else {
+            request.setAttribute(VALIDATORS, validators);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && response instanceof ServletServerHttpResponse servletResponse
+                && servletRequest.getServletRequest().getAttribute(VALIDATORS) instanceof Validators validators
+                && HttpStatus.Series.resolve(servletResponse.getServletResponse().getStatus())
+                == HttpStatus.Series.SUCCESSFUL) {
+            response.getHeaders().setETag(validators.etag());
+            response.getHeaders().setLastModified(validators.lastModified());
+        }
+        return body;
+    }
+
+    /**
+     * Whether the handler's body is written asynchronously after the response is committed, bypassing
+     * {@link ResponseBodyAdvice}. A {@link Mono} is re-dispatched and written like a plain body.
+     */
+    private static boolean streams(MethodParameter returnType) {
+        Class<?> type = returnType.getParameterType();
+        if (HttpEntity.class.isAssignableFrom(type)) {
+            type = ResolvableType.forMethodParameter(returnType).as(HttpEntity.class).getGeneric(0).resolve(Object.class);
+        }
+        return StreamingResponseBody.class.isAssignableFrom(type)
+                || ResponseBodyEmitter.class.isAssignableFrom(type)
+                || Publisher.class.isAssignableFrom(type) && !Mono.class.isAssignableFrom(type);
+    }
+
+    private record Validators(String etag, long lastModified) {
+        void applyTo(HttpServletResponse response) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.booksservice.configuration;
+
+import com.example.booksservice.dto.BookInfoRequest;
+import com.example.booksservice.dto.BookRequest;
+import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.entity.EnumMask;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Opt-in {@value #COMPACT_JSON_VALUE} representation in which genre and status sets are bitmasks of enum ordinals
+ * instead of arrays of names. Registered after the default converters, so plain JSON stays the default.
+ */
+@Configuration
+public class CompactJsonConfiguration implements WebMvcConfigurer {
+    public static final String COMPACT_JSON_VALUE = "application/vnd.books.compact";
+    public static final MediaType COMPACT_JSON = MediaType.parseMediaType(COMPACT_JSON_VALUE);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter(compactObjectMapper(objectMapper));
+        converter.setSupportedMediaTypes(List.of(COMPACT_JSON));
+        converters.add(converter);
+    }
+
+    public static ObjectMapper compactObjectMapper(ObjectMapper objectMapper) {
+        return objectMapper.copy()
+                .addMixIn(BookRequest.class, CompactBookMixin.class)
+                .addMixIn(BookResponse.class, CompactBookMixin.class)
+                .addMixIn(BookInfoRequest.class, CompactBookMixin.class);
+    }
+
+    public abstract static class CompactBookMixin {
+        @JsonSerialize(using = EnumMaskSerializer.class)
+        @JsonDeserialize(using = GenreMaskDeserializer.class)
+        EnumSet<Genre> genre;
+        @JsonSerialize(using = EnumMaskSerializer.class)
+        @JsonDeserialize(using = StatusMaskDeserializer.class)
+        EnumSet<Status> status;
+    }
+
+    public static class EnumMaskSerializer<E extends Enum<E>> extends JsonSerializer<Set<E>> {
+        @Override
+        public void serialize(Set<E> values, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(EnumMask.toMask(values));
+        }
+    }
+
+    public abstract static class EnumMaskDeserializer<E extends Enum<E>> extends JsonDeserializer<EnumSet<E>> {
+        private final Class<E> type;
+
+        EnumMaskDeserializer(Class<E> type) {
+            this.type = type;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public EnumSet<E> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            long mask = p.getLongValue();
+            try {
+                return EnumMask.fromMask(type, mask);
+            } catch (IllegalArgumentException ex) {
+                return (EnumSet<E>) ctxt.handleWeirdNumberValue(EnumSet.class, mask, ex.getMessage());
+            }
+        }
+    }
+
+    public static class GenreMaskDeserializer extends EnumMaskDeserializer<Genre> {
+        public GenreMaskDeserializer() {
+            super(Genre.class);
+        }
+    }
+
+    public static class StatusMaskDeserializer extends EnumMaskDeserializer<Status> {
+        public StatusMaskDeserializer() {
+            super(Status.class);
+        }
+    }
+}
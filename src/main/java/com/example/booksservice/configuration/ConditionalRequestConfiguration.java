@@ -0,0 +1,27 @@
+package com.example.booksservice.configuration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Conditional GETs for the catalogue read endpoints; see {@link CatalogueETagInterceptor}. The change feed and
+ * the sync endpoint are left out because they advance when the relay runs, not when the catalogue version changes.
+ * Off when read replicas are enabled: the version moves on commit to the primary, so a lagging replica would serve
+ * the old list under the new ETag and later requests would get 304 for it.
+ */
+@Configuration
+@ConditionalOnProperty(name = "book.read-replicas.enabled", havingValue = "false", matchIfMissing = true)
+public class ConditionalRequestConfiguration implements WebMvcConfigurer {
+    @Autowired
+    private CatalogueETagInterceptor catalogueETagInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(catalogueETagInterceptor)
+                .addPathPatterns("/book/*", "/book/reactive/*", "/book/admin/ISBN/*")
+                .excludePathPatterns("/book/changes", "/book/sync");
+    }
+}
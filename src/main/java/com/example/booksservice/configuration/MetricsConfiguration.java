@@ -0,0 +1,36 @@
+package com.example.booksservice.configuration;
+
+import com.example.booksservice.metrics.SqlMetricsDataSource;
+import com.example.booksservice.metrics.SqlRequestMetricsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Per-request SQL statement metrics. Latency histograms, Hikari, cache and Feign metrics come from Spring Boot and
+ * Spring Cloud OpenFeign and are configured in application.properties.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public static BeanPostProcessor sqlMetricsDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof SqlMetricsDataSource)) {
+                    return new SqlMetricsDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlRequestMetricsFilter sqlRequestMetricsFilter(MeterRegistry meterRegistry) {
+        return new SqlRequestMetricsFilter(meterRegistry);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.booksservice.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single pool with a primary pool and one pool per {@code book.read-replicas.urls} entry, routed by
+ * {@link ReplicaRoutingDataSource}. Every pool takes the {@code spring.datasource.*} credentials and Hikari settings;
+ * replica pools then apply {@code book.datasource.replica.hikari.*} on top, so a read waits only briefly for a
+ * replica connection (by default 250 ms instead of Hikari's 30 s) before falling back to the primary.
+ * The pools are deliberately not beans, so the application still sees one {@code DataSource}; Flyway migrates the
+ * primary only. Routing can be tried locally against any second Postgres instance holding the same schema.
+ */
+@Configuration
+@ConditionalOnProperty(name = "book.read-replicas.enabled", havingValue = "true")
+public class ReadReplicaConfiguration {
+    private final static String HIKARI_PREFIX = "spring.datasource.hikari";
+    private final static String REPLICA_HIKARI_PREFIX = "book.datasource.replica.hikari";
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${book.read-replicas.urls}") List<String> urls,
+                                 @Value("${book.read-replicas.validation-timeout-seconds}") int validationTimeoutSeconds) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(properties, properties.determineUrl(), "primary", binder, meterRegistry,
+                HIKARI_PREFIX);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String name = "replica-" + i;
+            replicas.put(name, pool(properties, urls.get(i), name, binder, meterRegistry, HIKARI_PREFIX,
+                    REPLICA_HIKARI_PREFIX));
+        }
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, validationTimeoutSeconds);
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Scheduled(fixedDelayString = "${book.read-replicas.health-check-interval-ms}")
+    public void checkReplicas() {
+        if (routingDataSource != null) {
+            routingDataSource.checkReplicas();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String url, String name, Binder binder,
+                                  MeterRegistry meterRegistry, String... hikariPrefixes) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        for (String prefix : hikariPrefixes) {
+            binder.bind(prefix, Bindable.ofInstance(pool));
+        }
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        pools.add(pool);
+        return pool;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.booksservice.configuration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out replica connections, round-robin, to read-only transactions and primary connections to everything else.
+ * A replica is skipped once its health check fails or it refuses a connection, until a health check passes again;
+ * with no healthy replica, reads go to the primary. A replica whose pool is merely exhausted stays in rotation and
+ * that one read goes elsewhere. Use it behind a {@link LazyConnectionDataSourceProxy}: the
+ * transaction manager takes its connection before it marks the transaction read-only.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final int validationTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, int validationTimeoutSeconds) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(validationTimeoutSeconds)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown(null);
+                }
+            } catch (SQLException ex) {
+                replica.markDown(ex);
+            }
+        }
+    }
+
+    public List<String> healthyReplicas() {
+        return replicas.stream()
+                .filter(replica -> replica.healthy)
+                .map(replica -> replica.name)
+                .toList();
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!replicas.isEmpty() && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (replica.healthy) {
+                    try {
+                        return source.get(replica.dataSource);
+                    } catch (SQLException ex) {
+                        if (isPoolExhausted(ex)) {
+                            log.debug("Read replica {} has no free connection, reading elsewhere", replica.name);
+                        } else {
+                            replica.markDown(ex);
+                        }
+                    }
+                }
+            }
+        }
+        return source.get(primary);
+    }
+
+    /**
+     * Hikari times out a connection request with a {@link SQLTransientConnectionException}; when the pool could not
+     * connect, the driver's exception is its cause, and when every connection was simply in use there is none.
+     */
+    private static boolean isPoolExhausted(SQLException ex) {
+        return ex instanceof SQLTransientConnectionException && ex.getCause() == null;
+    }
+
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void markUp() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Read replica {} is back, routing reads to it", name);
+            }
+        }
+
+        private void markDown(SQLException cause) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Read replica {} is unavailable, routing its reads elsewhere", name, cause);
+            }
+        }
+    }
+}
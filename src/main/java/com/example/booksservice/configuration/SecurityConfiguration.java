@@ -22,6 +22,7 @@ public class SecurityConfiguration {
     private static final String ADMIN = "ADMIN";
     private static final String BOOK_ENDPOINT = "/book/**";
     private static final String DB = "/db/**";
+    private static final String ACTUATOR_HEALTH = "/actuator/health";
 
     private static final String[] PUBLIC_URLS = {
             "/v3/api-docs/**",
@@ -51,6 +52,7 @@ public class SecurityConfiguration {
                 .authorizeHttpRequests(auth -> auth
                         .antMatchers(HttpMethod.GET, PUBLIC_URLS).permitAll()
                         .antMatchers(DB).permitAll()
+                        .antMatchers(HttpMethod.GET, ACTUATOR_HEALTH).permitAll()
                         .antMatchers(BOOK_ENDPOINT).hasAuthority(ADMIN)
                         .anyRequest().authenticated()
                 )
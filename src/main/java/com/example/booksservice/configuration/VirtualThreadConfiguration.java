@@ -0,0 +1,58 @@
+package com.example.booksservice.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in mode in which Tomcat handles every request on its own virtual thread, so requests blocked on JDBC or on
+ * library2 no longer hold a platform thread. Feign calls run on the request thread and inherit it. Needs a JDK 21
+ * runtime; the code is compiled for 17, so virtual threads are created reflectively.
+ * <p>
+ * The request cap follows the Hikari pool: {@code book.virtual-threads.requests-per-connection} requests per
+ * connection of {@code spring.datasource.hikari.maximum-pool-size}. Above one, requests served from the cache or
+ * waiting on library2 do not leave connections idle; a much larger factor only moves the queue into Hikari.
+ */
+@Configuration
+@ConditionalOnProperty(name = "book.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+    private final static String UNSUPPORTED_JDK = "Virtual threads need JDK 21 or newer, running on ";
+
+    private final ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${book.virtual-threads.requests-per-connection}") int requestsPerConnection,
+            @Value("${book.virtual-threads.acquire-timeout-ms}") long acquireTimeoutMillis,
+            ObjectMapper objectMapper) {
+        return new ConcurrencyLimitFilter(maximumPoolSize * requestsPerConnection, acquireTimeoutMillis, objectMapper);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(UNSUPPORTED_JDK + Runtime.version(), ex);
+        }
+    }
+}
@@ -1,16 +1,28 @@
 package com.example.booksservice.controller.external;
 
+import com.example.booksservice.dto.BookIdsRequest;
+import com.example.booksservice.dto.BookInfoListResponse;
 import com.example.booksservice.dto.BookInfoRequest;
+import com.example.booksservice.dto.BookStatusBatchRequest;
+import com.example.booksservice.dto.BookStatusBatchResponse;
+import com.example.booksservice.entity.Status;
 import com.example.booksservice.exception.BookNotFoundException;
+import com.example.booksservice.exception.BookStatusConflictException;
 import com.example.booksservice.service.BookService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.validation.Valid;
+
 @RestController
 @RequestMapping("/external/book")
 public class ExternalBookController {
@@ -23,10 +35,30 @@ public class ExternalBookController {
         return ResponseEntity.ok(bookService.takeTheBook(id));
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/find-by-ids")
+    public ResponseEntity<BookInfoListResponse> takeTheBooks(@Valid @RequestBody BookIdsRequest request) {
+        return ResponseEntity.ok(bookService.takeTheBooks(request.getIds()));
+    }
+
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/status/{id}")
     public ResponseEntity<Void> updateBookStatus(@PathVariable Long id) {
         bookService.updateBookStatus(id);
         return ResponseEntity.noContent().build();
     }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PutMapping("/status/{id}")
+    public ResponseEntity<Void> compareAndSetStatus(@PathVariable Long id, @RequestParam Status expected)
+            throws BookNotFoundException, BookStatusConflictException {
+        bookService.compareAndSetStatus(id, expected);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/status/batch")
+    public ResponseEntity<BookStatusBatchResponse> updateBookStatuses(@Valid @RequestBody BookStatusBatchRequest request) {
+        return ResponseEntity.ok(bookService.updateBookStatuses(request.getChanges()));
+    }
 }
@@ -1,20 +1,37 @@
 package com.example.booksservice.controller.internal;
 
+import com.example.booksservice.dto.BookChangesResponse;
+import com.example.booksservice.dto.BookFacetResponse;
+import com.example.booksservice.dto.BookImportResponse;
+import com.example.booksservice.dto.BookPageResponse;
 import com.example.booksservice.dto.BookRequest;
 import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.dto.BookSearchResponse;
+import com.example.booksservice.dto.BookSyncResponse;
 import com.example.booksservice.dto.ListBookResponse;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
 import com.example.booksservice.exception.BookNotFoundException;
-import com.example.booksservice.feignclient.UserClient;
+import com.example.booksservice.service.BookImportService;
 import com.example.booksservice.service.BookService;
+import com.example.booksservice.service.CurrentUserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/book")
@@ -22,21 +39,81 @@ public class InternalBookController {
     @Autowired
     private BookService bookService;
     @Autowired
-    private UserClient userClient;
+    private BookImportService bookImportService;
+    @Autowired
+    private CurrentUserService currentUserService;
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @PreAuthorize(value = "hasRole('ADMIN')")
     @PostMapping("/create")
     public ResponseEntity<BookResponse> createBook(@Valid @RequestBody BookRequest bookRequest) {
-        Long currentUserId = userClient.getCurrentUserId();
+        Long currentUserId = currentUserService.getCurrentUserId();
         bookRequest.setUserId(currentUserId);
         return ResponseEntity.status(HttpStatus.CREATED).body(bookService.createBook(bookRequest));
     }
 
+    @PreAuthorize(value = "hasRole('ADMIN')")
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BookImportResponse> importBooks(HttpServletRequest request) throws IOException {
+        Long currentUserId = currentUserService.getCurrentUserId();
+        return ResponseEntity.ok(bookImportService.importBooks(request.getInputStream(), currentUserId));
+    }
+
     @GetMapping("/books")
     public ResponseEntity<ListBookResponse> findAll() throws BookNotFoundException {
         return ResponseEntity.ok(bookService.findAll());
     }
 
+    @GetMapping("/filter")
+    public ResponseEntity<BookPageResponse> filter(@RequestParam(required = false) Set<Genre> genre,
+                                                   @RequestParam(required = false) Status status,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(bookService.filter(genre, status, cursor, size));
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<BookChangesResponse> changes(@RequestParam(defaultValue = "0") long since,
+                                                       @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(bookService.findChanges(since, limit));
+    }
+
+    @GetMapping("/sync")
+    public ResponseEntity<BookSyncResponse> sync(@RequestParam(defaultValue = "0") long since,
+                                                 @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(bookService.sync(since, limit));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacetResponse> facets(@RequestParam(required = false) Set<Genre> genre,
+                                                    @RequestParam(required = false) Status status) {
+        return ResponseEntity.ok(bookService.facets(genre, status));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<BookSearchResponse> search(@RequestParam(required = false) String q,
+                                                     @RequestParam(required = false) Set<Genre> genre,
+                                                     @RequestParam(required = false) Status status,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(bookService.search(q, genre, status, page, size));
+    }
+
+    @GetMapping(value = "/books", params = "size")
+    public ResponseEntity<BookPageResponse> findPage(@RequestParam int size,
+                                                     @RequestParam(required = false) String cursor) {
+        return ResponseEntity.ok(bookService.findPage(cursor, size));
+    }
+
+    @GetMapping(value = "/books", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        StreamingResponseBody body = outputStream -> bookService.streamAll(book -> writeLine(outputStream, book));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
 
     @GetMapping("/{id}")
     public ResponseEntity<BookResponse> findById(@PathVariable Long id) throws BookNotFoundException {
@@ -64,7 +141,7 @@ public class InternalBookController {
     @PreAuthorize("hasRole('ADMIN')")
     @PutMapping("/admin/update/{ISBN}")
     public ResponseEntity<BookResponse> updateByISBN(@PathVariable String ISBN, @Valid @RequestBody BookRequest bookRequest) throws BookNotFoundException {
-        Long currentUserId = userClient.getCurrentUserId();
+        Long currentUserId = currentUserService.getCurrentUserId();
         bookRequest.setUserId(currentUserId);
         return ResponseEntity.ok(bookService.updateBookByISBN(ISBN, bookRequest));
     }
@@ -74,6 +151,15 @@ public class InternalBookController {
         return ResponseEntity.ok(bookService.availableBooks());
     }
 
+    private void writeLine(OutputStream outputStream, BookResponse book) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(book));
+            outputStream.write('\n');
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
 }
 
 
@@ -0,0 +1,63 @@
+package com.example.booksservice.controller.internal;
+
+import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.dto.ListBookResponse;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.exception.BookNotFoundException;
+import com.example.booksservice.repository.BookReactiveRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive variants of the read endpoints, served by Spring MVC's async support: the request thread is released
+ * while the query runs over R2DBC, and NDJSON responses are written row by row with backpressure.
+ */
+@RestController
+@RequestMapping("/book/reactive")
+public class ReactiveBookController {
+    private final static String BOOKS_NOT_FOUND = "Book not found.";
+    private final static String BOOK_BY_ID = "A book with this id not found.";
+    private final static String AVAILABLE_BOOKS = "There are no available books!";
+
+    @Autowired
+    private BookReactiveRepository bookReactiveRepository;
+
+    @GetMapping("/books")
+    public Mono<ListBookResponse> findAll() {
+        return toListBookResponse(bookReactiveRepository.findAll(), BOOKS_NOT_FOUND);
+    }
+
+    @GetMapping(value = "/books", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookResponse> streamAll() {
+        return bookReactiveRepository.findAll();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<BookResponse> findById(@PathVariable Long id) {
+        return bookReactiveRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new BookNotFoundException(BOOK_BY_ID)));
+    }
+
+    @GetMapping("/available-books")
+    public Mono<ListBookResponse> availableBooks() {
+        return toListBookResponse(bookReactiveRepository.findByStatus(Status.AVAILABLE), AVAILABLE_BOOKS);
+    }
+
+    @GetMapping(value = "/available-books", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BookResponse> streamAvailableBooks() {
+        return bookReactiveRepository.findByStatus(Status.AVAILABLE);
+    }
+
+    private Mono<ListBookResponse> toListBookResponse(Flux<BookResponse> books, String notFoundMessage) {
+        return books.collectList()
+                .flatMap(responseList -> responseList.isEmpty()
+                        ? Mono.error(new BookNotFoundException(notFoundMessage))
+                        : Mono.just(ListBookResponse.builder().responseList(responseList).build()));
+    }
+}
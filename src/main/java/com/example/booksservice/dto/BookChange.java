@@ -0,0 +1,20 @@
+package com.example.booksservice.dto;
+
+import com.example.booksservice.entity.BookChangeType;
+import com.example.booksservice.entity.Status;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookChange {
+    private long seq;
+    private long bookId;
+    private String ISBN;
+    private BookChangeType type;
+    private Status status;
+}
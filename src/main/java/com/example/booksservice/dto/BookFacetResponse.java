@@ -0,0 +1,20 @@
+package com.example.booksservice.dto;
+
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookFacetResponse {
+    private long total;
+    private Map<Genre, Long> genres;
+    private Map<Status, Long> statuses;
+}
@@ -0,0 +1,21 @@
+package com.example.booksservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookIdsRequest {
+    @NotEmpty(message = "Ids cannot be empty")
+    @Size(max = 5000, message = "No more than 5000 ids per request")
+    private List<@NotNull Long> ids;
+}
@@ -0,0 +1,16 @@
+package com.example.booksservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookImportError {
+    private int row;
+    private String ISBN;
+    private String message;
+}
@@ -0,0 +1,18 @@
+package com.example.booksservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookImportResponse {
+    private int imported;
+    private int failed;
+    private List<BookImportError> errors;
+}
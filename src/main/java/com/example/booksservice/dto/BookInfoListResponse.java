@@ -0,0 +1,17 @@
+package com.example.booksservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookInfoListResponse {
+    private List<BookInfoRequest> books;
+    private List<Long> missingIds;
+}
@@ -6,7 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.Set;
+import java.util.EnumSet;
 
 
 @Data
@@ -16,5 +16,5 @@ import java.util.Set;
 public class BookInfoRequest {
     private Long bookId;
     private String title;
-    private Set<Status> status;
+    private EnumSet<Status> status;
 }
@@ -10,7 +10,7 @@ import lombok.NoArgsConstructor;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
 import javax.validation.constraints.*;
-import java.util.Set;
+import java.util.EnumSet;
 
 @Data
 @AllArgsConstructor
@@ -31,10 +31,10 @@ public class BookRequest {
         @NotNull(message = "Genre cannot be null")
         @NotEmpty(message = "Genre cannot be empty")
         @Enumerated(EnumType.STRING)
-        private Set<Genre> genre;
+        private EnumSet<Genre> genre;
         @NotNull(message = "Status cannot be null")
         @NotEmpty(message = "Status cannot be empty")
         @Enumerated(EnumType.STRING)
-        private Set<Status> status;
+        private EnumSet<Status> status;
         private Long userId;
 }
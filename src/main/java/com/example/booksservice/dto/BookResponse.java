@@ -4,7 +4,7 @@ import com.example.booksservice.entity.Genre;
 import com.example.booksservice.entity.Status;
 import lombok.*;
 
-import java.util.Set;
+import java.util.EnumSet;
 
 @Data
 @AllArgsConstructor
@@ -15,6 +15,6 @@ public class BookResponse {
     private String author;
     private String ISBN;
     private String description;
-    private Set<Genre> genre;
-    private Set<Status> status;
+    private EnumSet<Genre> genre;
+    private EnumSet<Status> status;
 }
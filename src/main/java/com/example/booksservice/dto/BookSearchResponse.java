@@ -0,0 +1,19 @@
+package com.example.booksservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookSearchResponse {
+    private List<BookResponse> responseList;
+    private int page;
+    private int size;
+    private boolean hasNext;
+}
@@ -0,0 +1,21 @@
+package com.example.booksservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookStatusBatchRequest {
+    @NotEmpty(message = "Changes cannot be empty")
+    @Size(max = 1000, message = "No more than 1000 changes per request")
+    private List<@Valid BookStatusChange> changes;
+}
@@ -0,0 +1,20 @@
+package com.example.booksservice.dto;
+
+import com.example.booksservice.entity.Status;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookStatusChange {
+    @NotNull(message = "Book id cannot be null")
+    private Long bookId;
+    @NotNull(message = "Status cannot be null")
+    private Status status;
+}
@@ -0,0 +1,17 @@
+package com.example.booksservice.dto;
+
+import com.example.booksservice.entity.Status;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookStatusResult {
+    private Long bookId;
+    private Status status;
+    private StatusChangeOutcome outcome;
+}
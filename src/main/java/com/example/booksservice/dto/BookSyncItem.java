@@ -0,0 +1,17 @@
+package com.example.booksservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookSyncItem {
+    private long seq;
+    private long bookId;
+    private boolean deleted;
+    private BookResponse book;
+}
@@ -0,0 +1,18 @@
+package com.example.booksservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BookSyncResponse {
+    private List<BookSyncItem> changes;
+    private long nextSince;
+    private boolean hasMore;
+}
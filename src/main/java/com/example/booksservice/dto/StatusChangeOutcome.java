@@ -0,0 +1,7 @@
+package com.example.booksservice.dto;
+
+public enum StatusChangeOutcome {
+    UPDATED,
+    CONFLICT,
+    NOT_FOUND
+}
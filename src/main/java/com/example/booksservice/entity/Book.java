@@ -3,7 +3,6 @@ package com.example.booksservice.entity;
 import lombok.*;
 
 import javax.persistence.*;
-import java.util.HashSet;
 import java.util.Set;
 
 
@@ -12,8 +11,11 @@ import java.util.Set;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "books", schema = "book_service_schema")
+@Table(name = "books", schema = "book_service_schema",
+        uniqueConstraints = @UniqueConstraint(name = Book.ISBN_CONSTRAINT, columnNames = "ISBN"))
 public class Book {
+    public final static String ISBN_CONSTRAINT = "books_isbn_key";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
@@ -22,19 +24,17 @@ public class Book {
     private String ISBN;
     private String description;
 
-    @ElementCollection(fetch = FetchType.LAZY)
-    @CollectionTable(
-            name = "book_genres", schema = "book_service_schema",
-            joinColumns = @JoinColumn(name = "book_id")
-    )
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = GenreSetConverter.class)
+    @Column(name = "genres", nullable = false)
     private Set<Genre> genre;
     @Enumerated(EnumType.STRING)
-    @ElementCollection(fetch = FetchType.LAZY)
-    @CollectionTable(name = "book_status", schema = "book_service_schema", joinColumns = @JoinColumn(name = "book_id"))
     @Column(name = "status", nullable = false)
-    private Set<Status> status=new HashSet<>();
+    private Status status;
     @Column(name = "admin_id")
     private Long userId;
+    @Version
+    private long version;
+    @Column(name = "modified_seq", insertable = false, updatable = false)
+    private Long modifiedSeq;
 }
 
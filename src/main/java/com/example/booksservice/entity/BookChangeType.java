@@ -0,0 +1,8 @@
+package com.example.booksservice.entity;
+
+public enum BookChangeType {
+    CREATED,
+    UPDATED,
+    STATUS_CHANGED,
+    DELETED
+}
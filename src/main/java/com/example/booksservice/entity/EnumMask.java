@@ -0,0 +1,44 @@
+package com.example.booksservice.entity;
+
+import java.util.Collection;
+import java.util.EnumSet;
+
+/**
+ * Encodes a set of enum constants as a bitmask with one bit per ordinal, so enums stored this way must only
+ * ever get new constants appended.
+ */
+public final class EnumMask {
+    private final static String UNKNOWN_BITS = "Mask %d has bits outside of %s.";
+
+    private EnumMask() {
+    }
+
+    public static <E extends Enum<E>> long toMask(Collection<E> values) {
+        long mask = 0;
+        for (E value : values) {
+            mask |= 1L << value.ordinal();
+        }
+        return mask;
+    }
+
+    public static <E extends Enum<E>> EnumSet<E> fromMask(Class<E> type, long mask) {
+        E[] constants = type.getEnumConstants();
+        if (constants.length < Long.SIZE && mask >>> constants.length != 0) {
+            throw new IllegalArgumentException(String.format(UNKNOWN_BITS, mask, type.getSimpleName()));
+        }
+        EnumSet<E> values = EnumSet.noneOf(type);
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            values.add(constants[Long.numberOfTrailingZeros(bits)]);
+        }
+        return values;
+    }
+
+    public static <E extends Enum<E>> EnumSet<E> copyOf(Class<E> type, Collection<E> values) {
+        if (values == null) {
+            return null;
+        }
+        EnumSet<E> copy = EnumSet.noneOf(type);
+        copy.addAll(values);
+        return copy;
+    }
+}
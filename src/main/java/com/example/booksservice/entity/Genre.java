@@ -1,5 +1,8 @@
 package com.example.booksservice.entity;
 
+/**
+ * Stored as a bitmask of ordinals (see {@link EnumMask}): append new genres, never reorder or remove them.
+ */
 public enum Genre {
     FANTASY,
     ADVENTURE,
@@ -0,0 +1,18 @@
+package com.example.booksservice.entity;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.Set;
+
+@Converter
+public class GenreSetConverter implements AttributeConverter<Set<Genre>, Long> {
+    @Override
+    public Long convertToDatabaseColumn(Set<Genre> genres) {
+        return genres == null ? 0L : EnumMask.toMask(genres);
+    }
+
+    @Override
+    public Set<Genre> convertToEntityAttribute(Long mask) {
+        return EnumMask.fromMask(Genre.class, mask == null ? 0L : mask);
+    }
+}
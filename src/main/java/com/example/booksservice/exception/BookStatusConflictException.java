@@ -0,0 +1,7 @@
+package com.example.booksservice.exception;
+
+public class BookStatusConflictException extends RuntimeException {
+    public BookStatusConflictException(String message) {
+        super(message);
+    }
+}
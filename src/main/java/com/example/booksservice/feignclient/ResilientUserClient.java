@@ -0,0 +1,27 @@
+package com.example.booksservice.feignclient;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calls {@link UserClient} on the caller's thread behind a bulkhead and a circuit breaker, so a slow library2
+ * rejects excess calls immediately instead of parking request threads until the read timeout.
+ */
+@Component
+public class ResilientUserClient {
+    private final UserClient userClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public ResilientUserClient(UserClient userClient, CircuitBreaker library2CircuitBreaker, Bulkhead library2Bulkhead) {
+        this.userClient = userClient;
+        this.circuitBreaker = library2CircuitBreaker;
+        this.bulkhead = library2Bulkhead;
+    }
+
+    public Long getCurrentUserId() {
+        return Bulkhead.decorateSupplier(bulkhead,
+                CircuitBreaker.decorateSupplier(circuitBreaker, userClient::getCurrentUserId)).get();
+    }
+}
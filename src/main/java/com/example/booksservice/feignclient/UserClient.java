@@ -4,7 +4,7 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 
 
-@FeignClient(name = "library2")
+@FeignClient(name = "library2", url = "${library2.url:}")
 public interface UserClient {
     @GetMapping("/external/user/current-user")
     Long getCurrentUserId();
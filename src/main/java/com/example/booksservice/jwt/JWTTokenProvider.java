@@ -4,7 +4,14 @@ import com.auth0.jwt.JWT;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -12,41 +19,115 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import javax.annotation.PostConstruct;
+import java.time.Clock;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+/**
+ * Verifies bearer tokens issued by library2. Verified tokens are cached until their {@code exp} claim,
+ * so a token replayed by the same client skips HMAC verification and claim parsing.
+ */
 @Component
 public class JWTTokenProvider {
     private static final String LIBRARY2="library2";
     private static final String USER_ID="userId";
     private static final String ROLES="roles";
+    private static final String CACHE_NAME = "jwt.tokens";
     private final static String INVALID_TOKEN = "JWT token is expired or invalid";
-    @Value("${jwt.token.secret}")
-    private String jwtSecret;
+    private final static long TOKEN_WITHOUT_EXPIRY_TTL = TimeUnit.MINUTES.toMillis(5);
 
-    @PostConstruct
-    protected void init() {
-        jwtSecret = Base64.getEncoder().encodeToString(jwtSecret.getBytes());
+    private final JWTVerifier verifier;
+    private final Clock clock;
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    @Autowired
+    public JWTTokenProvider(@Value("${jwt.token.secret}") String jwtSecret,
+                            @Value("${jwt.token.cache.maximum-size:10000}") long cacheMaximumSize,
+                            MeterRegistry meterRegistry) {
+        this(jwtSecret, cacheMaximumSize, meterRegistry, Clock.systemUTC());
     }
 
-    public Authentication validateToken(String token) throws JWTAuthenticationException {
-        Algorithm algorithm = Algorithm.HMAC256(jwtSecret);
-        JWTVerifier verifier = JWT.require(algorithm)
+    JWTTokenProvider(String jwtSecret, long cacheMaximumSize, MeterRegistry meterRegistry, Clock clock) {
+        Algorithm algorithm = Algorithm.HMAC256(Base64.getEncoder().encodeToString(jwtSecret.getBytes()));
+        this.verifier = JWT.require(algorithm)
                 .withIssuer(LIBRARY2)
                 .build();
+        this.clock = clock;
+        if (cacheMaximumSize > 0) {
+            this.verifiedTokens = Caffeine.newBuilder()
+                    .maximumSize(cacheMaximumSize)
+                    .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                    .expireAfter(new TokenExpiry())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, CACHE_NAME);
+        } else {
+            this.verifiedTokens = null;
+        }
+    }
+
+    public Authentication validateToken(String token) throws JWTAuthenticationException {
+        if (verifiedTokens != null) {
+            VerifiedToken verifiedToken = verifiedTokens.getIfPresent(token);
+            if (verifiedToken != null) {
+                return verifiedToken.authentication();
+            }
+        }
         try {
             DecodedJWT jwt = verifier.verify(token);
-            String userId = jwt.getClaim(USER_ID).asString();
+            String userId = userId(jwt.getClaim(USER_ID));
             List<String> roles = jwt.getClaim(ROLES).asList(String.class);
             Collection<GrantedAuthority> authorities = roles.stream()
                     .map(SimpleGrantedAuthority::new)
                     .collect(Collectors.toList());
-            return new UsernamePasswordAuthenticationToken(userId, token, authorities);
+            Authentication authentication = new UsernamePasswordAuthenticationToken(userId, token, authorities);
+            if (verifiedTokens != null) {
+                verifiedTokens.put(token, new VerifiedToken(authentication, expiresAt(jwt)));
+            }
+            return authentication;
         } catch (JWTVerificationException exception) {
             throw new JWTAuthenticationException(INVALID_TOKEN);
         }
     }
+
+    private String userId(Claim claim) {
+        String userId = claim.asString();
+        if (userId == null && claim.asLong() != null) {
+            userId = claim.asLong().toString();
+        }
+        return userId;
+    }
+
+    private long expiresAt(DecodedJWT jwt) {
+        Date expiresAt = jwt.getExpiresAt();
+        return expiresAt != null ? expiresAt.getTime() : clock.millis() + TOKEN_WITHOUT_EXPIRY_TTL;
+    }
+
+    private record VerifiedToken(Authentication authentication, long expiresAtMillis) {
+    }
+
+    /**
+     * The cache ticker reads the same clock, so {@code currentTime} is the wall-clock time in nanoseconds.
+     */
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+        @Override
+        public long expireAfterCreate(String token, VerifiedToken verifiedToken, long currentTime) {
+            long remainingMillis = verifiedToken.expiresAtMillis() - TimeUnit.NANOSECONDS.toMillis(currentTime);
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, VerifiedToken verifiedToken, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, verifiedToken, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, VerifiedToken verifiedToken, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
@@ -3,9 +3,17 @@ package com.example.booksservice.mapper;
 import com.example.booksservice.dto.BookRequest;
 import com.example.booksservice.dto.BookResponse;
 import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.EnumMask;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 import org.mapstruct.factory.Mappers;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 @Mapper
 public interface BookMapper {
     BookMapper INSTANCE = Mappers.getMapper(BookMapper.class);
@@ -16,4 +24,28 @@ public interface BookMapper {
 
     Book bookDtoToBook(BookResponse bookResponse);
 
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "modifiedSeq", ignore = true)
+    void updateBook(BookRequest bookRequest, @MappingTarget Book book);
+
+    default Set<Genre> genresToEntity(EnumSet<Genre> genres) {
+        return EnumMask.copyOf(Genre.class, genres);
+    }
+
+    default EnumSet<Genre> genresToDto(Set<Genre> genres) {
+        return EnumMask.copyOf(Genre.class, genres);
+    }
+
+    default Status statusSetToStatus(Set<Status> status) {
+        if (status == null || status.isEmpty()) {
+            return null;
+        }
+        return status.contains(Status.AVAILABLE) ? Status.AVAILABLE : Status.UNAVAILABLE;
+    }
+
+    default EnumSet<Status> statusToStatusSet(Status status) {
+        return status == null ? null : EnumSet.of(status);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.example.booksservice.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Times every {@code execute*} call on statements created from its connections and reports it to
+ * {@link SqlStatementStats}, so both Hibernate and {@code JdbcTemplate} statements are counted.
+ */
+public class SqlMetricsDataSource extends DelegatingDataSource {
+    private static final String EXECUTE = "execute";
+
+    public SqlMetricsDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return instrument(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrument(super.getConnection(username, password));
+    }
+
+    private static Connection instrument(Connection connection) {
+        return proxy(Connection.class, connection, (method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof CallableStatement statement) {
+                return instrument(CallableStatement.class, statement);
+            } else if (result instanceof PreparedStatement statement) {
+                return instrument(PreparedStatement.class, statement);
+            } else if (result instanceof Statement statement) {
+                return instrument(Statement.class, statement);
+            }
+            return result;
+        });
+    }
+
+    private static <S extends Statement> S instrument(Class<S> type, S statement) {
+        return proxy(type, statement, (method, args) -> {
+            if (!method.getName().startsWith(EXECUTE)) {
+                return invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                SqlStatementStats.record(System.nanoTime() - start);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        return (T) Proxy.newProxyInstance(SqlMetricsDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.invoke(method, args));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+
+    private interface Handler {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.booksservice.repository;
+
+import com.example.booksservice.dto.BookChange;
+import com.example.booksservice.entity.BookChangeType;
+import com.example.booksservice.entity.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Transactional outbox of book changes. Writers append rows in their own transaction; the relay later stamps
+ * them with {@code feed_seq} in commit order, and only stamped rows are visible in the feed. Row ids cannot
+ * serve as the feed position because they are allocated before commit, so a lower id can become visible
+ * after a higher one. Stamped rows expire after the retention period, except {@code DELETED} tombstones, which the
+ * sync endpoint needs; a feed client further behind than that must resync through the sync endpoint.
+ */
+@Repository
+public class BookChangeRepository {
+    private final static String APPEND_CHANGES = "INSERT INTO book_service_schema.book_changes " +
+            "(book_id, isbn, type, status) " +
+            "SELECT id, isbn, ?, status FROM book_service_schema.books WHERE id = ANY(?) ORDER BY id";
+    private final static String APPEND_DELETION = "INSERT INTO book_service_schema.book_changes " +
+            "(book_id, isbn, type) VALUES (?, ?, ?)";
+    private final static String TRY_RELAY_LOCK = "SELECT pg_try_advisory_xact_lock(?)";
+    private final static long RELAY_LOCK_KEY = 0x626f6f6b_63686731L;
+    private final static String SELECT_LAST_SEQ = "SELECT COALESCE(MAX(feed_seq), 0) " +
+            "FROM book_service_schema.book_changes";
+    private final static String STAMP_PENDING = "UPDATE book_service_schema.book_changes c SET feed_seq = p.seq " +
+            "FROM (SELECT id, ? + row_number() OVER (ORDER BY id) AS seq " +
+            "FROM book_service_schema.book_changes WHERE feed_seq IS NULL ORDER BY id LIMIT ?) p " +
+            "WHERE c.id = p.id";
+    private final static String STAMP_BOOKS = "UPDATE book_service_schema.books b SET modified_seq = c.seq " +
+            "FROM (SELECT book_id, MAX(feed_seq) AS seq FROM book_service_schema.book_changes " +
+            "WHERE feed_seq > ? GROUP BY book_id) c " +
+            "WHERE b.id = c.book_id";
+    private final static String SELECT_SYNC = "SELECT modified_seq AS seq, id, FALSE AS deleted " +
+            "FROM book_service_schema.books WHERE modified_seq > ? " +
+            "UNION ALL " +
+            "SELECT feed_seq, book_id, TRUE FROM book_service_schema.book_changes " +
+            "WHERE type = 'DELETED' AND feed_seq > ? " +
+            "ORDER BY seq LIMIT ?";
+    private final static String DELETE_EXPIRED = "DELETE FROM book_service_schema.book_changes WHERE id IN (" +
+            "SELECT id FROM book_service_schema.book_changes " +
+            "WHERE feed_seq IS NOT NULL AND type <> 'DELETED' AND created_at < ? " +
+            "AND feed_seq < (SELECT MAX(feed_seq) FROM book_service_schema.book_changes) " +
+            "LIMIT ?)";
+    private final static String SELECT_CHANGES = "SELECT feed_seq, book_id, isbn, type, status " +
+            "FROM book_service_schema.book_changes WHERE feed_seq > ? ORDER BY feed_seq LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Records the current state of the given books; call it after the change has been written.
+     */
+    public void appendChanges(BookChangeType type, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(APPEND_CHANGES);
+            ps.setString(1, type.name());
+            ps.setArray(2, connection.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        });
+    }
+
+    public void appendDeletion(long id, String ISBN) {
+        jdbcTemplate.update(APPEND_DELETION, id, ISBN, BookChangeType.DELETED.name());
+    }
+
+    /**
+     * Takes the relay lock for the current transaction; false if another instance holds it.
+     */
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_RELAY_LOCK, Boolean.class, RELAY_LOCK_KEY));
+    }
+
+    /**
+     * Gives up to {@code limit} pending changes the next feed positions, oldest first, and copies each book's
+     * latest position to {@code books.modified_seq}. Must hold the relay lock.
+     */
+    public int stampPending(int limit) {
+        Long lastSeq = jdbcTemplate.queryForObject(SELECT_LAST_SEQ, Long.class);
+        int stamped = jdbcTemplate.update(STAMP_PENDING, lastSeq, limit);
+        if (stamped > 0) {
+            jdbcTemplate.update(STAMP_BOOKS, lastSeq);
+        }
+        return stamped;
+    }
+
+    /**
+     * Books modified and books deleted after {@code since}, in feed order. Deleted books come back as
+     * tombstones, with {@code deleted} set.
+     */
+    public List<SyncRow> findSyncRows(long since, int limit) {
+        return jdbcTemplate.query(SELECT_SYNC, (rs, rowNum) -> new SyncRow(rs.getLong("seq"), rs.getLong("id"),
+                rs.getBoolean("deleted")), since, since, limit);
+    }
+
+    /**
+     * Deletes up to {@code limit} stamped changes created before {@code cutoff}. Tombstones are kept, and so is the
+     * latest stamped row, because the relay numbers the next changes from it.
+     */
+    public int deleteExpired(Instant cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_EXPIRED, Timestamp.from(cutoff), limit);
+    }
+
+    public List<BookChange> findChanges(long since, int limit) {
+        return jdbcTemplate.query(SELECT_CHANGES, (rs, rowNum) -> {
+            String status = rs.getString("status");
+            return BookChange.builder()
+                    .seq(rs.getLong("feed_seq"))
+                    .bookId(rs.getLong("book_id"))
+                    .ISBN(rs.getString("isbn"))
+                    .type(BookChangeType.valueOf(rs.getString("type")))
+                    .status(status == null ? null : Status.valueOf(status))
+                    .build();
+        }, since, limit);
+    }
+
+    public record SyncRow(long seq, long bookId, boolean deleted) {
+    }
+}
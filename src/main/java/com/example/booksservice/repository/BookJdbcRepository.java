@@ -0,0 +1,213 @@
+package com.example.booksservice.repository;
+
+import com.example.booksservice.dto.BookInfoRequest;
+import com.example.booksservice.dto.BookStatusChange;
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.EnumMask;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Set-based statements that JPA cannot express efficiently: JDBC batches and {@code = ANY(?)} array lookups.
+ * Runs on the connection of the surrounding JPA transaction.
+ */
+@Repository
+public class BookJdbcRepository {
+    private final static String UPDATE_STATUS = "UPDATE book_service_schema.books " +
+            "SET status = ?, version = version + 1 " +
+            "WHERE id = ? AND status <> ?";
+    private final static String UPDATE_STATUS_AT_VERSION = "UPDATE book_service_schema.books " +
+            "SET status = ?, version = version + 1 " +
+            "WHERE id = ? AND version = ?";
+    private final static String SELECT_STATUS = "SELECT status, version FROM book_service_schema.books WHERE id = ?";
+    private final static String SELECT_EXISTING_IDS = "SELECT id FROM book_service_schema.books WHERE id = ANY(?)";
+    private final static String SELECT_BOOK_INFO = "SELECT id, title, status FROM book_service_schema.books " +
+            "WHERE id = ANY(?)";
+    private final static String NEXT_BOOK_IDS = "SELECT nextval('book_service_schema.books_id_seq') " +
+            "FROM generate_series(1, ?)";
+    private final static String INSERT_BOOK = "INSERT INTO book_service_schema.books " +
+            "(id, title, author, description, isbn, admin_id, status, genres, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0) ON CONFLICT (isbn) DO NOTHING";
+    private final static String SELECT_FACETS = "SELECT id, status, genres FROM book_service_schema.books";
+    private final static String SELECT_FACETS_BY_IDS = SELECT_FACETS + " WHERE id = ANY(?)";
+    private final static int FACET_FETCH_SIZE = 10_000;
+    private final static String SEARCH_QUERY = "websearch_to_tsquery('simple', ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public int[] updateStatuses(List<BookStatusChange> changes) {
+        return jdbcTemplate.batchUpdate(UPDATE_STATUS, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BookStatusChange change = changes.get(i);
+                ps.setString(1, change.getStatus().name());
+                ps.setLong(2, change.getBookId());
+                ps.setString(3, change.getStatus().name());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+    }
+
+    /**
+     * Sets each status only if the row is still at the given version, so a write made since it was read wins.
+     */
+    public int[] updateVersionedStatuses(List<VersionedStatus> changes) {
+        return jdbcTemplate.batchUpdate(UPDATE_STATUS_AT_VERSION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                VersionedStatus change = changes.get(i);
+                ps.setString(1, change.status().name());
+                ps.setLong(2, change.bookId());
+                ps.setLong(3, change.version());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return changes.size();
+            }
+        });
+    }
+
+    public Optional<VersionedStatus> findVersionedStatus(long id) {
+        return jdbcTemplate.query(SELECT_STATUS, (rs, rowNum) -> new VersionedStatus(id,
+                        Status.valueOf(rs.getString("status")), rs.getLong("version")), id)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Inserts the books in one batch, skipping those whose ISBN is already taken, and returns the ids of the
+     * rows that were inserted. Ids are drawn from the sequence up front so the batch needs no generated keys,
+     * which keeps it compatible with the driver's rewritten multi-row inserts.
+     */
+    public Set<Long> insertBooks(List<Book> books) {
+        List<Long> ids = jdbcTemplate.queryForList(NEXT_BOOK_IDS, Long.class, books.size());
+        for (int i = 0; i < books.size(); i++) {
+            books.get(i).setId(ids.get(i));
+        }
+        jdbcTemplate.batchUpdate(INSERT_BOOK, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Book book = books.get(i);
+                ps.setLong(1, book.getId());
+                ps.setString(2, book.getTitle());
+                ps.setString(3, book.getAuthor());
+                ps.setString(4, book.getDescription());
+                ps.setString(5, book.getISBN());
+                ps.setObject(6, book.getUserId(), Types.BIGINT);
+                ps.setString(7, book.getStatus().name());
+                ps.setLong(8, EnumMask.toMask(book.getGenre()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return books.size();
+            }
+        });
+        return findExistingIds(ids);
+    }
+
+    /**
+     * Returns one page of matching book ids, best match first. The text query is served by the GIN index on
+     * {@code search_vector} and genres match on any bit of the mask; without a text query the ids come back
+     * in id order.
+     */
+    public List<Long> searchIds(String query, Set<Genre> genres, Status status, int offset, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT b.id FROM book_service_schema.books b");
+        List<Object> args = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        if (query != null) {
+            sql.append(", ").append(SEARCH_QUERY).append(" q");
+            args.add(query);
+            conditions.add("b.search_vector @@ q");
+        }
+        if (status != null) {
+            conditions.add("b.status = ?");
+            args.add(status.name());
+        }
+        if (genres != null && !genres.isEmpty()) {
+            conditions.add("(b.genres & ?) <> 0");
+            args.add(EnumMask.toMask(genres));
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(query != null ? " ORDER BY ts_rank(b.search_vector, q) DESC, b.id" : " ORDER BY b.id");
+        sql.append(" LIMIT ? OFFSET ?");
+        args.add(limit);
+        args.add(offset);
+        return jdbcTemplate.queryForList(sql.toString(), Long.class, args.toArray());
+    }
+
+    /**
+     * Streams the id, status and genres of every book. Reading the whole catalogue needs a transaction
+     * so the driver can fetch it in chunks.
+     */
+    public void forEachFacet(FacetRowHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SELECT_FACETS);
+            ps.setFetchSize(FACET_FETCH_SIZE);
+            return ps;
+        }, facetRows(handler));
+    }
+
+    public void forEachFacet(Collection<Long> ids, FacetRowHandler handler) {
+        jdbcTemplate.query(withIdArray(SELECT_FACETS_BY_IDS, ids), facetRows(handler));
+    }
+
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return new HashSet<>(jdbcTemplate.query(withIdArray(SELECT_EXISTING_IDS, ids),
+                (rs, rowNum) -> rs.getLong(1)));
+    }
+
+    public List<BookInfoRequest> findBookInfoByIds(Collection<Long> ids) {
+        return jdbcTemplate.query(withIdArray(SELECT_BOOK_INFO, ids), (rs, rowNum) -> BookInfoRequest.builder()
+                .bookId(rs.getLong("id"))
+                .title(rs.getString("title"))
+                .status(EnumSet.of(Status.valueOf(rs.getString("status"))))
+                .build());
+    }
+
+    private RowCallbackHandler facetRows(FacetRowHandler handler) {
+        return rs -> handler.accept(rs.getLong("id"), Status.valueOf(rs.getString("status")),
+                EnumMask.fromMask(Genre.class, rs.getLong("genres")));
+    }
+
+    private PreparedStatementCreator withIdArray(String sql, Collection<Long> ids) {
+        return connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        };
+    }
+
+    public record VersionedStatus(long bookId, Status status, long version) {
+    }
+
+    @FunctionalInterface
+    public interface FacetRowHandler {
+        void accept(long id, Status status, EnumSet<Genre> genres);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.booksservice.repository;
+
+import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.entity.EnumMask;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.service.BookStatusWriteBehind;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumSet;
+
+/**
+ * Non-blocking reads over R2DBC. Rows are fetched from a cursor in chunks of {@code book.r2dbc.fetch-size} as the
+ * subscriber asks for them, so a slow client holds the query back instead of buffering the table. Statuses still
+ * buffered by {@link BookStatusWriteBehind} take precedence over the rows.
+ */
+@Repository
+public class BookReactiveRepository {
+    private final static String SELECT_BOOKS = "SELECT id, title, author, description, isbn, genres, status " +
+            "FROM book_service_schema.books";
+    private final static String SELECT_ALL = SELECT_BOOKS + " ORDER BY id";
+    private final static String SELECT_BY_ID = SELECT_BOOKS + " WHERE id = :id";
+    private final static String SELECT_BY_STATUS = SELECT_BOOKS + " WHERE status = :status ORDER BY id";
+
+    @Autowired
+    private DatabaseClient databaseClient;
+    @Autowired(required = false)
+    private BookStatusWriteBehind bookStatusWriteBehind;
+    @Value("${book.r2dbc.fetch-size}")
+    private int fetchSize;
+
+    public Flux<BookResponse> findAll() {
+        return databaseClient.sql(SELECT_ALL)
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(this::toBookResponse)
+                .all();
+    }
+
+    public Flux<BookResponse> findByStatus(Status status) {
+        Flux<BookResponse> books = databaseClient.sql(SELECT_BY_STATUS)
+                .bind("status", status.name())
+                .filter(statement -> statement.fetchSize(fetchSize))
+                .map(this::toBookResponse)
+                .all();
+        if (bookStatusWriteBehind == null) {
+            return books;
+        }
+        return books.filter(book -> book.getStatus().contains(status))
+                .concatWith(Flux.defer(() -> Flux.fromIterable(bookStatusWriteBehind.pendingIds(status)))
+                        .concatMap(this::findById)
+                        .filter(book -> book.getStatus().contains(status)));
+    }
+
+    public Mono<BookResponse> findById(long id) {
+        return databaseClient.sql(SELECT_BY_ID)
+                .bind("id", id)
+                .map(this::toBookResponse)
+                .one();
+    }
+
+    private BookResponse toBookResponse(Row row) {
+        Status status = Status.valueOf(row.get("status", String.class));
+        if (bookStatusWriteBehind != null) {
+            status = bookStatusWriteBehind.pendingStatus(row.get("id", Long.class)).orElse(status);
+        }
+        return BookResponse.builder()
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .description(row.get("description", String.class))
+                .ISBN(row.get("isbn", String.class))
+                .genre(EnumMask.fromMask(Genre.class, row.get("genres", Long.class)))
+                .status(EnumSet.of(status))
+                .build();
+    }
+}
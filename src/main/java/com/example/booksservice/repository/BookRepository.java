@@ -2,19 +2,55 @@ package com.example.booksservice.repository;
 
 import com.example.booksservice.entity.Book;
 import com.example.booksservice.entity.Status;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Genres are a bitmask column of the books row, so every read path loads N books in a single statement.
+ */
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
     Optional<Book> findByISBN(String ISBN);
 
     void deleteByISBN(String ISBN);
 
-    List<Book> findByStatusContaining(Status status);
+    List<Book> findByStatus(Status status);
+
+    @Modifying
+    @Query(value = "UPDATE book_service_schema.books " +
+            "SET status = CASE status WHEN 'AVAILABLE' THEN 'UNAVAILABLE' ELSE 'AVAILABLE' END, " +
+            "version = version + 1 " +
+            "WHERE id = :id", nativeQuery = true)
+    int toggleStatus(@Param("id") long id);
+
+    @Modifying
+    @Query("update Book b set b.status = :target, b.version = b.version + 1 " +
+            "where b.id = :id and b.status = :expected")
+    int compareAndSetStatus(@Param("id") long id, @Param("expected") Status expected, @Param("target") Status target);
+
+    @Query("select b.id from Book b where b.id > :id order by b.id")
+    List<Long> findIdsAfter(@Param("id") long id, Pageable pageable);
 
+    List<Book> findByIdInOrderById(Collection<Long> ids);
 
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select b from Book b order by b.id")
+    Stream<Book> streamAll();
 }
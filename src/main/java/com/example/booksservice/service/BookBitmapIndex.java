@@ -0,0 +1,291 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.dto.BookFacetResponse;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.repository.BookJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory compressed bitmaps of book ids, one per {@link Genre} and per {@link Status}, for filtering and facet
+ * counts without touching the database. Built from the database at startup; afterwards every committed write
+ * queues the ids it touched, and a single background thread re-reads them, so the index trails commits slightly.
+ * Ids queued while a refresh runs are coalesced into the next one, and refreshes are serialized, so a refresh always
+ * applies a state at least as new as the one before it. A failed refresh is followed by a full rebuild on the same
+ * thread, retried on a schedule; writers never wait for either. The {@link CatalogueVersion} is bumped again once a
+ * refresh or rebuild has been applied, so filter and facet responses read before it are revalidated afterwards.
+ */
+@Slf4j
+@Component
+public class BookBitmapIndex {
+    /**
+     * Bitmaps hold ints, so this is the largest book id the index can answer for.
+     */
+    public static final long MAX_BOOK_ID = Integer.MAX_VALUE;
+
+    private final BookJdbcRepository bookJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogueVersion catalogueVersion;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock refreshLock = new ReentrantLock();
+    private final Executor refresher;
+    private final Object queueLock = new Object();
+    private Set<Long> queuedIds = new HashSet<>();
+    private boolean rebuildQueued;
+    private boolean draining;
+    private boolean failed;
+    private RoaringBitmap all = new RoaringBitmap();
+    private Map<Genre, RoaringBitmap> genres = emptyBitmaps(Genre.class);
+    private Map<Status, RoaringBitmap> statuses = emptyBitmaps(Status.class);
+
+    public BookBitmapIndex(BookJdbcRepository bookJdbcRepository, TransactionTemplate transactionTemplate,
+                           CatalogueVersion catalogueVersion) {
+        this(bookJdbcRepository, transactionTemplate, catalogueVersion, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bitmap-index-refresh");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    BookBitmapIndex(BookJdbcRepository bookJdbcRepository, TransactionTemplate transactionTemplate,
+                    CatalogueVersion catalogueVersion, Executor refresher) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.catalogueVersion = catalogueVersion;
+        this.refresher = refresher;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        refreshLock.lock();
+        try {
+            RoaringBitmap newAll = new RoaringBitmap();
+            Map<Genre, RoaringBitmap> newGenres = emptyBitmaps(Genre.class);
+            Map<Status, RoaringBitmap> newStatuses = emptyBitmaps(Status.class);
+            transactionTemplate.executeWithoutResult(status -> bookJdbcRepository.forEachFacet((id, bookStatus, bookGenres) -> {
+                int bookId = Math.toIntExact(id);
+                newAll.add(bookId);
+                newStatuses.get(bookStatus).add(bookId);
+                bookGenres.forEach(genre -> newGenres.get(genre).add(bookId));
+            }));
+            newAll.runOptimize();
+            newGenres.values().forEach(RoaringBitmap::runOptimize);
+            newStatuses.values().forEach(RoaringBitmap::runOptimize);
+            lock.writeLock().lock();
+            try {
+                all = newAll;
+                genres = newGenres;
+                statuses = newStatuses;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Queues the given books for re-indexing once the current transaction commits; books that no longer exist are
+     * dropped.
+     */
+    public void refreshAfterCommit(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Long> bookIds = List.copyOf(ids);
+        TransactionCallbacks.afterCommit(() -> enqueue(bookIds));
+    }
+
+    public void refreshAfterCommit(Long id) {
+        refreshAfterCommit(List.of(id));
+    }
+
+    @Scheduled(fixedDelayString = "${book.bitmap-index.retry-interval-ms:5000}")
+    public void retryFailedRefresh() {
+        synchronized (queueLock) {
+            if (!failed || draining) {
+                return;
+            }
+            failed = false;
+            draining = true;
+        }
+        refresher.execute(this::drain);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (refresher instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void enqueue(Collection<Long> ids) {
+        synchronized (queueLock) {
+            queuedIds.addAll(ids);
+            if (draining || failed) {
+                return;
+            }
+            draining = true;
+        }
+        refresher.execute(this::drain);
+    }
+
+    private void drain() {
+        while (true) {
+            Set<Long> ids;
+            boolean rebuild;
+            synchronized (queueLock) {
+                if (queuedIds.isEmpty() && !rebuildQueued) {
+                    draining = false;
+                    return;
+                }
+                ids = queuedIds;
+                rebuild = rebuildQueued;
+                queuedIds = new HashSet<>();
+                rebuildQueued = false;
+            }
+            try {
+                if (rebuild) {
+                    rebuild();
+                } else {
+                    refresh(ids);
+                }
+                catalogueVersion.bump();
+            } catch (DataAccessException ex) {
+                synchronized (queueLock) {
+                    rebuildQueued = true;
+                    if (rebuild) {
+                        failed = true;
+                        draining = false;
+                    }
+                }
+                if (rebuild) {
+                    log.error("Could not rebuild the bitmap index, retrying later", ex);
+                    return;
+                }
+                log.warn("Could not refresh the bitmap index for books {}, rebuilding it", ids, ex);
+            }
+        }
+    }
+
+    private void refresh(Collection<Long> ids) {
+        refreshLock.lock();
+        try {
+            Map<Integer, Status> bookStatuses = new HashMap<>();
+            Map<Integer, EnumSet<Genre>> bookGenres = new HashMap<>();
+            bookJdbcRepository.forEachFacet(ids, (id, status, genreSet) -> {
+                int bookId = Math.toIntExact(id);
+                bookStatuses.put(bookId, status);
+                bookGenres.put(bookId, genreSet);
+            });
+            lock.writeLock().lock();
+            try {
+                for (Long id : ids) {
+                    int bookId = Math.toIntExact(id);
+                    all.remove(bookId);
+                    genres.values().forEach(bitmap -> bitmap.remove(bookId));
+                    statuses.values().forEach(bitmap -> bitmap.remove(bookId));
+                    Status status = bookStatuses.get(bookId);
+                    if (status != null) {
+                        all.add(bookId);
+                        statuses.get(status).add(bookId);
+                        bookGenres.get(bookId).forEach(genre -> genres.get(genre).add(bookId));
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Ids of books that have any of the given genres (all books when none are given) and the given status,
+     * in ascending order, starting after {@code afterId}.
+     */
+    public List<Long> findIds(Set<Genre> genreFilter, Status statusFilter, long afterId, int limit) {
+        if (afterId >= MAX_BOOK_ID) {
+            return List.of();
+        }
+        RoaringBitmap matches = match(genreFilter, statusFilter);
+        List<Long> ids = new ArrayList<>(limit);
+        PeekableIntIterator iterator = matches.getIntIterator();
+        iterator.advanceIfNeeded(Math.toIntExact(afterId + 1));
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add((long) iterator.next());
+        }
+        return ids;
+    }
+
+    /**
+     * Counts the books matching the filter, broken down by genre and by status.
+     */
+    public BookFacetResponse facets(Set<Genre> genreFilter, Status statusFilter) {
+        Map<Genre, Long> genreCounts = new EnumMap<>(Genre.class);
+        Map<Status, Long> statusCounts = new EnumMap<>(Status.class);
+        RoaringBitmap matches;
+        lock.readLock().lock();
+        try {
+            matches = match(genreFilter, statusFilter);
+            genres.forEach((genre, bitmap) -> genreCounts.put(genre, (long) RoaringBitmap.andCardinality(matches, bitmap)));
+            statuses.forEach((status, bitmap) -> statusCounts.put(status, (long) RoaringBitmap.andCardinality(matches, bitmap)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return BookFacetResponse.builder()
+                .total(matches.getLongCardinality())
+                .genres(genreCounts)
+                .statuses(statusCounts)
+                .build();
+    }
+
+    /**
+     * A new bitmap of the matching ids. Genre and status bitmaps only hold indexed books, so {@code all} is copied
+     * only when there is no filter.
+     */
+    private RoaringBitmap match(Set<Genre> genreFilter, Status statusFilter) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap matches = null;
+            if (genreFilter != null && !genreFilter.isEmpty()) {
+                matches = RoaringBitmap.or(genreFilter.stream().map(genres::get).iterator());
+            }
+            if (statusFilter != null) {
+                if (matches == null) {
+                    matches = statuses.get(statusFilter).clone();
+                } else {
+                    matches.and(statuses.get(statusFilter));
+                }
+            }
+            return matches != null ? matches : all.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static <E extends Enum<E>> Map<E, RoaringBitmap> emptyBitmaps(Class<E> type) {
+        Map<E, RoaringBitmap> bitmaps = new EnumMap<>(type);
+        for (E value : type.getEnumConstants()) {
+            bitmaps.put(value, new RoaringBitmap());
+        }
+        return bitmaps;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.dto.BookInfoRequest;
+import com.example.booksservice.dto.BookResponse;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-through cache of book lookups. Books are cached by id; an ISBN only maps to the id, so a status
+ * change never has to know the ISBN. Evictions are repeated after the surrounding transaction completes, and each
+ * one first bumps an invalidation generation, striped by book id, with one more for lookups by ISBN. A reader takes
+ * the {@link Generation} before loading and a put whose generation has moved on is undone, so a row loaded before
+ * a commit cannot stay cached after it.
+ */
+@Component
+public class BookCache {
+    public final static String BOOKS = "books";
+    public final static String BOOK_INFO = "book-info";
+    public final static String BOOK_IDS = "book-ids";
+    private final static int STRIPES = 1024;
+    private final static int ANY_BOOK = -1;
+
+    private final Cache books;
+    private final Cache bookInfo;
+    private final Cache bookIds;
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final AtomicLong anyBookGeneration = new AtomicLong();
+
+    public BookCache(CacheManager cacheManager) {
+        this.books = Objects.requireNonNull(cacheManager.getCache(BOOKS));
+        this.bookInfo = Objects.requireNonNull(cacheManager.getCache(BOOK_INFO));
+        this.bookIds = Objects.requireNonNull(cacheManager.getCache(BOOK_IDS));
+    }
+
+    public BookResponse getBook(Long id) {
+        return books.get(id, BookResponse.class);
+    }
+
+    public BookResponse getBookByISBN(String ISBN) {
+        Long id = bookIds.get(ISBN, Long.class);
+        return id == null ? null : getBook(id);
+    }
+
+    /**
+     * Generation to take before loading the book with this id from the database.
+     */
+    public Generation generation(Long id) {
+        int stripe = stripe(id);
+        return new Generation(stripe, generations.get(stripe));
+    }
+
+    /**
+     * Generation to take before loading a book whose id is not known yet, e.g. by ISBN.
+     */
+    public Generation generationOfAnyBook() {
+        return new Generation(ANY_BOOK, anyBookGeneration.get());
+    }
+
+    public void putBook(Long id, String ISBN, BookResponse book, Generation generation) {
+        bookIds.put(ISBN, id);
+        books.put(id, book);
+        if (isStale(generation)) {
+            books.evict(id);
+            bookIds.evict(ISBN);
+        }
+    }
+
+    public BookInfoRequest getBookInfo(Long id) {
+        return bookInfo.get(id, BookInfoRequest.class);
+    }
+
+    public void putBookInfo(BookInfoRequest book, Generation generation) {
+        bookInfo.put(book.getBookId(), book);
+        if (isStale(generation)) {
+            bookInfo.evict(book.getBookId());
+        }
+    }
+
+    public void evictBook(Long id) {
+        evictBooks(List.of(id));
+    }
+
+    public void evictBooks(Collection<Long> ids) {
+        evict(() -> {
+            ids.forEach(id -> generations.incrementAndGet(stripe(id)));
+            anyBookGeneration.incrementAndGet();
+            ids.forEach(id -> {
+                books.evict(id);
+                bookInfo.evict(id);
+            });
+        });
+    }
+
+    public void evictISBN(String ISBN) {
+        evict(() -> {
+            anyBookGeneration.incrementAndGet();
+            bookIds.evict(ISBN);
+        });
+    }
+
+    /**
+     * Checked after the put: an eviction bumps the generation before it evicts, so either this check sees the
+     * bump or the eviction removes the entry just put.
+     */
+    private boolean isStale(Generation generation) {
+        long current = generation.stripe() == ANY_BOOK
+                ? anyBookGeneration.get()
+                : generations.get(generation.stripe());
+        return current != generation.value();
+    }
+
+    private static int stripe(Long id) {
+        return Math.floorMod(Long.hashCode(id), STRIPES);
+    }
+
+    private void evict(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    public record Generation(int stripe, long value) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.repository.BookChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Publishes committed outbox rows to the change feed in batches. Every instance runs it, but the relay lock lets
+ * only one stamp at a time, which is what keeps feed positions in commit order. It also deletes stamped changes
+ * older than {@code book.changes.retention-days}, a batch per statement.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "book.changes.relay-enabled", havingValue = "true", matchIfMissing = true)
+public class BookChangeRelay {
+    private final BookChangeRepository bookChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration retention;
+
+    public BookChangeRelay(BookChangeRepository bookChangeRepository,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${book.changes.relay-batch-size:1000}") int batchSize,
+                           @Value("${book.changes.retention-days:30}") int retentionDays) {
+        this.bookChangeRepository = bookChangeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    @Scheduled(fixedDelayString = "${book.changes.relay-interval-ms:500}")
+    public void relay() {
+        try {
+            Integer stamped;
+            do {
+                stamped = transactionTemplate.execute(status -> bookChangeRepository.tryLockRelay()
+                        ? bookChangeRepository.stampPending(batchSize)
+                        : 0);
+            } while (stamped != null && stamped == batchSize);
+        } catch (DataAccessException ex) {
+            log.warn("Could not relay book changes", ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${book.changes.retention-interval-ms:3600000}")
+    public void deleteExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        try {
+            int deleted;
+            do {
+                deleted = bookChangeRepository.deleteExpired(cutoff, batchSize);
+            } while (deleted == batchSize);
+        } catch (DataAccessException ex) {
+            log.warn("Could not delete expired book changes", ex);
+        }
+    }
+}
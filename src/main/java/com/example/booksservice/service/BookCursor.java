@@ -0,0 +1,43 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.exception.InvalidPageRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for catalogue pages: the URL-safe Base64 form of the last book id a client has seen.
+ */
+public final class BookCursor {
+    private final static String INVALID_CURSOR = "The page cursor is invalid.";
+
+    private BookCursor() {
+    }
+
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Long.toString(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static long decode(String cursor) {
+        return decode(cursor, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes a cursor for a listing that can't hold ids above {@code maxId}, rejecting larger ones as invalid.
+     */
+    public static long decode(String cursor, long maxId) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            long lastId = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII));
+            if (lastId < 0 || lastId > maxId) {
+                throw new InvalidPageRequestException(INVALID_CURSOR);
+            }
+            return lastId;
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidPageRequestException(INVALID_CURSOR);
+        }
+    }
+}
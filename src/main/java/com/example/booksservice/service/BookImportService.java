@@ -0,0 +1,157 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.dto.BookImportError;
+import com.example.booksservice.dto.BookImportResponse;
+import com.example.booksservice.dto.BookRequest;
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.BookChangeType;
+import com.example.booksservice.mapper.BookMapper;
+import com.example.booksservice.repository.BookChangeRepository;
+import com.example.booksservice.repository.BookJdbcRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Streams a JSON array or NDJSON body of books into the catalogue in batches, one transaction per batch.
+ * Rows that fail validation or collide on ISBN are reported instead of failing the whole import.
+ */
+@Service
+public class BookImportService {
+    private final static String EMPTY_ROW = "Row is empty.";
+    private final static String MISSING_ISBN = "ISBN must consist of 13 digits!!!";
+    private final static String DUPLICATE_ISBN = "The isbn is repeated in this import.";
+    private final static String BOOK_ALREADY_EXISTS = "The book with this isbn already exists!!!";
+    private final static String MALFORMED_INPUT = "Malformed input, import stopped: %s";
+
+    private final ObjectReader bookReader;
+    private final Validator validator;
+    private final BookJdbcRepository bookJdbcRepository;
+    private final BookChangeRepository bookChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BookBitmapIndex bookBitmapIndex;
+    private final CatalogueVersion catalogueVersion;
+    private final int batchSize;
+
+    public BookImportService(ObjectMapper objectMapper,
+                             Validator validator,
+                             BookJdbcRepository bookJdbcRepository,
+                             BookChangeRepository bookChangeRepository,
+                             TransactionTemplate transactionTemplate,
+                             BookBitmapIndex bookBitmapIndex,
+                             CatalogueVersion catalogueVersion,
+                             @Value("${book.import.batch-size:1000}") int batchSize) {
+        this.bookReader = objectMapper.readerFor(BookRequest.class);
+        this.validator = validator;
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.bookChangeRepository = bookChangeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.bookBitmapIndex = bookBitmapIndex;
+        this.catalogueVersion = catalogueVersion;
+        this.batchSize = batchSize;
+    }
+
+    public BookImportResponse importBooks(InputStream body, Long userId) throws IOException {
+        List<BookImportError> errors = new ArrayList<>();
+        Set<String> seenIsbns = new HashSet<>();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        int imported = 0;
+        int row = 0;
+        try (MappingIterator<BookRequest> rows = bookReader.readValues(body)) {
+            while (true) {
+                BookRequest bookRequest;
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                    bookRequest = rows.nextValue();
+                } catch (JsonProcessingException ex) {
+                    errors.add(error(row + 1, null, String.format(MALFORMED_INPUT, ex.getOriginalMessage())));
+                    break;
+                }
+                row++;
+                String rejection = validate(bookRequest, seenIsbns);
+                if (rejection != null) {
+                    errors.add(error(row, bookRequest == null ? null : bookRequest.getISBN(), rejection));
+                    continue;
+                }
+                bookRequest.setUserId(userId);
+                batch.add(new ImportRow(row, BookMapper.INSTANCE.bookDtoToBook(bookRequest)));
+                if (batch.size() == batchSize) {
+                    imported += insert(batch, errors);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            imported += insert(batch, errors);
+        }
+        errors.sort(Comparator.comparingInt(BookImportError::getRow));
+        return BookImportResponse.builder()
+                .imported(imported)
+                .failed(errors.size())
+                .errors(errors)
+                .build();
+    }
+
+    private String validate(BookRequest bookRequest, Set<String> seenIsbns) {
+        if (bookRequest == null) {
+            return EMPTY_ROW;
+        }
+        Set<ConstraintViolation<BookRequest>> violations = validator.validate(bookRequest);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        if (bookRequest.getISBN() == null) {
+            return MISSING_ISBN;
+        }
+        if (!seenIsbns.add(bookRequest.getISBN())) {
+            return DUPLICATE_ISBN;
+        }
+        return null;
+    }
+
+    private int insert(List<ImportRow> batch, List<BookImportError> errors) {
+        List<Book> books = batch.stream().map(ImportRow::book).collect(Collectors.toList());
+        Set<Long> insertedIds = transactionTemplate.execute(status -> {
+            Set<Long> ids = bookJdbcRepository.insertBooks(books);
+            bookChangeRepository.appendChanges(BookChangeType.CREATED, ids);
+            bookBitmapIndex.refreshAfterCommit(ids);
+            if (!ids.isEmpty()) {
+                catalogueVersion.bumpAfterCommit();
+            }
+            return ids;
+        });
+        for (ImportRow importRow : batch) {
+            if (!insertedIds.contains(importRow.book().getId())) {
+                errors.add(error(importRow.row(), importRow.book().getISBN(), BOOK_ALREADY_EXISTS));
+            }
+        }
+        return insertedIds.size();
+    }
+
+    private BookImportError error(int row, String ISBN, String message) {
+        return BookImportError.builder()
+                .row(row)
+                .ISBN(ISBN)
+                .message(message)
+                .build();
+    }
+
+    private record ImportRow(int row, Book book) {
+    }
+}
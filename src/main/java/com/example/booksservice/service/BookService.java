@@ -1,26 +1,69 @@
 package com.example.booksservice.service;
 
+import com.example.booksservice.dto.BookChange;
+import com.example.booksservice.dto.BookChangesResponse;
+import com.example.booksservice.dto.BookFacetResponse;
+import com.example.booksservice.dto.BookInfoListResponse;
 import com.example.booksservice.dto.BookInfoRequest;
+import com.example.booksservice.dto.BookPageResponse;
 import com.example.booksservice.dto.BookRequest;
 import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.dto.BookSearchResponse;
+import com.example.booksservice.dto.BookStatusBatchResponse;
+import com.example.booksservice.dto.BookStatusChange;
+import com.example.booksservice.dto.BookStatusResult;
+import com.example.booksservice.dto.BookSyncItem;
+import com.example.booksservice.dto.BookSyncResponse;
 import com.example.booksservice.dto.ListBookResponse;
+import com.example.booksservice.dto.StatusChangeOutcome;
 import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.BookChangeType;
+import com.example.booksservice.entity.EnumMask;
+import com.example.booksservice.entity.Genre;
 import com.example.booksservice.entity.Status;
 import com.example.booksservice.exception.BookAlreadyExistsException;
 import com.example.booksservice.exception.BookNotFoundException;
+import com.example.booksservice.exception.BookStatusConflictException;
+import com.example.booksservice.exception.InvalidPageRequestException;
 import com.example.booksservice.mapper.BookMapper;
+import com.example.booksservice.repository.BookChangeRepository;
+import com.example.booksservice.repository.BookChangeRepository.SyncRow;
+import com.example.booksservice.repository.BookJdbcRepository;
 import com.example.booksservice.repository.BookRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookService {
     @Autowired
     private BookRepository bookRepository;
+    @Autowired
+    private BookJdbcRepository bookJdbcRepository;
+    @Autowired
+    private BookCache bookCache;
+    @Autowired
+    private BookBitmapIndex bookBitmapIndex;
+    @Autowired
+    private CatalogueVersion catalogueVersion;
+    @Autowired
+    private BookChangeRepository bookChangeRepository;
+    @Autowired(required = false)
+    private BookStatusWriteBehind bookStatusWriteBehind;
+    @PersistenceContext
+    private EntityManager entityManager;
     private final static String BOOK_ALREADY_EXISTS = "The book with this isbn already exists!!!";
     private final static String BOOKS_NOT_FOUND = "Book not found.";
     private final static String BOOK_BY_ID = "A book with this id not found.";
@@ -28,20 +71,32 @@ public class BookService {
     private final static String BOOK_BY_ISBN = "A book with isbn not found.";
     private final static String DELETE_BOOK_BY_ID = "The book has been deleted.";
     private final static String AVAILABLE_BOOKS = "There are no available books!";
+    private final static String BOOK_STATUS_CONFLICT = "The book is no longer %s.";
+    private final static int MAX_PAGE_SIZE = 500;
+    private final static String INVALID_PAGE_SIZE = "Page size must be between 1 and " + MAX_PAGE_SIZE + ".";
+    private final static int MAX_SEARCH_OFFSET = 10_000;
+    private final static String INVALID_SINCE = "The change feed position must not be negative.";
+    private final static String INVALID_SEARCH_PAGE = "Search results are limited to the first " + MAX_SEARCH_OFFSET +
+            " matches, please refine the query.";
 
     @Transactional
     public BookResponse createBook(BookRequest bookRequest) {
         Book book = BookMapper.INSTANCE.bookDtoToBook(bookRequest);
-        Optional<Book> existingBook = bookRepository.findByISBN(book.getISBN());
-        if (existingBook.isPresent()) {
-            throw new BookAlreadyExistsException(BOOK_ALREADY_EXISTS);
+        try {
+            bookRepository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException ex) {
+            throw translateIsbnViolation(ex);
         }
-        bookRepository.save(book);
+        bookChangeRepository.appendChanges(BookChangeType.CREATED, List.of(book.getId()));
+        bookCache.evictISBN(book.getISBN());
+        bookBitmapIndex.refreshAfterCommit(book.getId());
+        catalogueVersion.bumpAfterCommit();
 
         return createdBookResponse(book);
     }
 
 
+    @Transactional(readOnly = true)
     public ListBookResponse findAll() throws BookNotFoundException {
         List<Book> bookList = bookRepository.findAll();
         if (bookList.isEmpty()) {
@@ -50,35 +105,214 @@ public class BookService {
         return createListBookResponse(bookList);
     }
 
+    @Transactional(readOnly = true)
+    public BookPageResponse findPage(String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException(INVALID_PAGE_SIZE);
+        }
+        long afterId = BookCursor.decode(cursor);
+        List<Long> ids = bookRepository.findIdsAfter(afterId, PageRequest.of(0, size + 1));
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+        List<Book> page = pageIds.isEmpty() ? List.of() : bookRepository.findByIdInOrderById(pageIds);
+        return BookPageResponse.builder()
+                .responseList(page.stream()
+                        .map(this::createdBookResponse)
+                        .collect(Collectors.toList()))
+                .nextCursor(hasNext ? BookCursor.encode(pageIds.get(pageIds.size() - 1)) : null)
+                .build();
+    }
+
+    /**
+     * Reads the rows from the primary: the bitmap index follows primary commits, and a lagging replica would drop
+     * ids it does not have yet.
+     */
+    @Transactional
+    public BookPageResponse filter(Set<Genre> genres, Status status, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException(INVALID_PAGE_SIZE);
+        }
+        List<Long> ids = bookBitmapIndex.findIds(genres, status,
+                BookCursor.decode(cursor, BookBitmapIndex.MAX_BOOK_ID), size + 1);
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+        List<Book> page = pageIds.isEmpty() ? List.of() : bookRepository.findByIdInOrderById(pageIds);
+        return BookPageResponse.builder()
+                .responseList(page.stream()
+                        .map(this::createdBookResponse)
+                        .collect(Collectors.toList()))
+                .nextCursor(hasNext ? BookCursor.encode(pageIds.get(pageIds.size() - 1)) : null)
+                .build();
+    }
+
+    public BookChangesResponse findChanges(long since, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException(INVALID_PAGE_SIZE);
+        }
+        if (since < 0) {
+            throw new InvalidPageRequestException(INVALID_SINCE);
+        }
+        List<BookChange> changes = bookChangeRepository.findChanges(since, limit + 1);
+        boolean hasMore = changes.size() > limit;
+        List<BookChange> page = hasMore ? changes.subList(0, limit) : changes;
+        return BookChangesResponse.builder()
+                .changes(page)
+                .nextSince(page.isEmpty() ? since : page.get(page.size() - 1).getSeq())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Books changed after the client's watermark, with tombstones for deleted ones. A book deleted between the two
+     * queries is skipped here; its tombstone has a later position and comes on a later page.
+     */
+    @Transactional(readOnly = true)
+    public BookSyncResponse sync(long since, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException(INVALID_PAGE_SIZE);
+        }
+        if (since < 0) {
+            throw new InvalidPageRequestException(INVALID_SINCE);
+        }
+        List<SyncRow> rows = bookChangeRepository.findSyncRows(since, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<SyncRow> page = hasMore ? rows.subList(0, limit) : rows;
+        List<Long> ids = page.stream()
+                .filter(row -> !row.deleted())
+                .map(SyncRow::bookId)
+                .collect(Collectors.toList());
+        Map<Long, Book> booksById = ids.isEmpty() ? Map.of() : bookRepository.findByIdInOrderById(ids)
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<BookSyncItem> changes = new ArrayList<>(page.size());
+        for (SyncRow row : page) {
+            Book book = booksById.get(row.bookId());
+            if (row.deleted() || book != null) {
+                changes.add(BookSyncItem.builder()
+                        .seq(row.seq())
+                        .bookId(row.bookId())
+                        .deleted(row.deleted())
+                        .book(row.deleted() ? null : createdBookResponse(book))
+                        .build());
+            }
+        }
+        return BookSyncResponse.builder()
+                .changes(changes)
+                .nextSince(page.isEmpty() ? since : page.get(page.size() - 1).seq())
+                .hasMore(hasMore)
+                .build();
+    }
+
+    public BookFacetResponse facets(Set<Genre> genres, Status status) {
+        return bookBitmapIndex.facets(genres, status);
+    }
+
+    @Transactional(readOnly = true)
+    public BookSearchResponse search(String query, Set<Genre> genres, Status status, int page, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException(INVALID_PAGE_SIZE);
+        }
+        if (page < 0 || (long) page * size > MAX_SEARCH_OFFSET) {
+            throw new InvalidPageRequestException(INVALID_SEARCH_PAGE);
+        }
+        String text = query == null || query.isBlank() ? null : query.trim();
+        List<Long> ids = bookJdbcRepository.searchIds(text, genres, status, page * size, size + 1);
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+        Map<Long, Book> booksById = pageIds.isEmpty() ? Map.of() : bookRepository.findByIdInOrderById(pageIds)
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return BookSearchResponse.builder()
+                .responseList(pageIds.stream()
+                        .map(booksById::get)
+                        .filter(Objects::nonNull)
+                        .map(this::createdBookResponse)
+                        .collect(Collectors.toList()))
+                .page(page)
+                .size(size)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<BookResponse> consumer) {
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            books.forEach(book -> {
+                consumer.accept(createdBookResponse(book));
+                entityManager.detach(book);
+            });
+        }
+    }
+
 
     public Optional<BookResponse> findById(Long id) throws BookNotFoundException {
+        BookResponse cachedBook = bookCache.getBook(id);
+        if (cachedBook != null) {
+            return Optional.of(cachedBook);
+        }
+        BookCache.Generation generation = bookCache.generation(id);
         Optional<Book> optionalBook = bookRepository.findById(id);
         if (optionalBook.isEmpty()) {
             throw new BookNotFoundException(BOOK_BY_ID);
         }
         Book book = optionalBook.get();
-        return Optional.ofNullable(createdBookResponse(book));
+        return Optional.of(cacheBookResponse(book, generation));
     }
 
     public Optional<BookResponse> findByISBN(String ISBN) throws BookNotFoundException {
+        BookResponse cachedBook = bookCache.getBookByISBN(ISBN);
+        if (cachedBook != null) {
+            return Optional.of(cachedBook);
+        }
+        BookCache.Generation generation = bookCache.generationOfAnyBook();
         Optional<Book> optionalBook = bookRepository.findByISBN(ISBN);
         if (optionalBook.isEmpty()) {
             throw new BookNotFoundException(BOOK_BY_ISBN);
         }
         Book book = optionalBook.get();
-        return Optional.ofNullable(createdBookResponse(book));
+        return Optional.of(cacheBookResponse(book, generation));
     }
 
     public BookInfoRequest takeTheBook(Long id) throws BookNotFoundException {
+        BookInfoRequest cachedBook = bookCache.getBookInfo(id);
+        if (cachedBook != null) {
+            return cachedBook;
+        }
+        BookCache.Generation generation = bookCache.generation(id);
         Optional<Book> optionalBook = bookRepository.findById(id);
         if (optionalBook.isEmpty()) {
             throw new BookNotFoundException(BOOK_BY_ISBN);
         }
         Book book = optionalBook.get();
-        return BookInfoRequest.builder()
+        BookInfoRequest bookInfo = BookInfoRequest.builder()
                 .bookId(book.getId())
                 .title(book.getTitle())
-                .status(book.getStatus())
+                .status(EnumSet.of(statusOf(book)))
+                .build();
+        bookCache.putBookInfo(bookInfo, generation);
+        return bookInfo;
+    }
+
+    public BookInfoListResponse takeTheBooks(List<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        Map<Long, BookInfoRequest> booksById = bookJdbcRepository.findBookInfoByIds(uniqueIds).stream()
+                .collect(Collectors.toMap(BookInfoRequest::getBookId, Function.identity()));
+        List<BookInfoRequest> books = new ArrayList<>(booksById.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : uniqueIds) {
+            BookInfoRequest book = booksById.get(id);
+            if (book == null) {
+                missingIds.add(id);
+            } else {
+                if (bookStatusWriteBehind != null) {
+                    bookStatusWriteBehind.pendingStatus(id).ifPresent(status -> book.setStatus(EnumSet.of(status)));
+                }
+                books.add(book);
+            }
+        }
+        return BookInfoListResponse.builder()
+                .books(books)
+                .missingIds(missingIds)
                 .build();
     }
 
@@ -89,55 +323,174 @@ public class BookService {
             throw new BookNotFoundException(BOOKS_NOT_FOUND);
         }
         bookRepository.deleteByISBN(ISBN);
+        if (bookStatusWriteBehind != null) {
+            bookStatusWriteBehind.discardAfterCommit(book.get().getId());
+        }
+        bookChangeRepository.appendDeletion(book.get().getId(), ISBN);
+        bookCache.evictBook(book.get().getId());
+        bookCache.evictISBN(ISBN);
+        bookBitmapIndex.refreshAfterCommit(book.get().getId());
+        catalogueVersion.bumpAfterCommit();
     }
 
+    @Transactional
     public BookResponse updateBookByISBN(String ISBN, BookRequest bookRequest) throws BookNotFoundException {
         Optional<Book> optionalBook = bookRepository.findByISBN(ISBN);
         if (optionalBook.isEmpty()) {
             throw new BookNotFoundException(BOOK_BY_ISBN);
         }
-        Book book = BookMapper.INSTANCE.bookDtoToBook(bookRequest);
-        book.setId(optionalBook.get().getId());
-        Optional<Book> existingBook = bookRepository.findByISBN(book.getISBN());
-        if (existingBook.isPresent()) {
-            throw new BookAlreadyExistsException(BOOK_ALREADY_EXISTS);
+        Book updatedBook = optionalBook.get();
+        BookMapper.INSTANCE.updateBook(bookRequest, updatedBook);
+        if (bookStatusWriteBehind != null) {
+            entityManager.lock(updatedBook, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            bookStatusWriteBehind.discardAfterCommit(updatedBook.getId());
         }
-        Book updatedBook = bookRepository.save(book);
+        try {
+            bookRepository.flush();
+        } catch (DataIntegrityViolationException ex) {
+            throw translateIsbnViolation(ex);
+        }
+        bookChangeRepository.appendChanges(BookChangeType.UPDATED, List.of(updatedBook.getId()));
+        bookCache.evictBook(updatedBook.getId());
+        bookCache.evictISBN(ISBN);
+        bookCache.evictISBN(updatedBook.getISBN());
+        bookBitmapIndex.refreshAfterCommit(updatedBook.getId());
+        catalogueVersion.bumpAfterCommit();
         return createdBookResponse(updatedBook);
     }
 
-    public void updateBookStatus(Long id) {
-        Optional<Book> optionalBook = bookRepository.findById(id);
-        Book book = optionalBook.get();
-        Set<Status> newStatusSet = new HashSet<>();
-        if (book.getStatus().contains(Status.AVAILABLE)) {
-            newStatusSet.add(Status.UNAVAILABLE);
-        } else {
-            newStatusSet.add(Status.AVAILABLE);
+    @Transactional
+    public void updateBookStatus(Long id) throws BookNotFoundException {
+        if (bookStatusWriteBehind != null) {
+            if (!bookStatusWriteBehind.toggle(id)) {
+                throw new BookNotFoundException(BOOK_BY_ID);
+            }
+            return;
+        }
+        if (bookRepository.toggleStatus(id) == 0) {
+            throw new BookNotFoundException(BOOK_BY_ID);
+        }
+        bookChangeRepository.appendChanges(BookChangeType.STATUS_CHANGED, List.of(id));
+        bookCache.evictBook(id);
+        bookBitmapIndex.refreshAfterCommit(id);
+        catalogueVersion.bumpAfterCommit();
+    }
+
+    @Transactional
+    public void compareAndSetStatus(Long id, Status expected) throws BookNotFoundException, BookStatusConflictException {
+        Status target = expected == Status.AVAILABLE ? Status.UNAVAILABLE : Status.AVAILABLE;
+        if (bookRepository.compareAndSetStatus(id, expected, target) == 0) {
+            if (!bookRepository.existsById(id)) {
+                throw new BookNotFoundException(BOOK_BY_ID);
+            }
+            throw new BookStatusConflictException(String.format(BOOK_STATUS_CONFLICT, expected));
+        }
+        bookChangeRepository.appendChanges(BookChangeType.STATUS_CHANGED, List.of(id));
+        bookCache.evictBook(id);
+        bookBitmapIndex.refreshAfterCommit(id);
+        if (bookStatusWriteBehind != null) {
+            bookStatusWriteBehind.rebaseAfterCommit(List.of(id));
         }
-        book.setStatus(newStatusSet);
-        bookRepository.save(book);
+        catalogueVersion.bumpAfterCommit();
     }
 
+    @Transactional
+    public BookStatusBatchResponse updateBookStatuses(List<BookStatusChange> changes) {
+        int[] updated = bookJdbcRepository.updateStatuses(changes);
+        List<Long> updatedIds = new ArrayList<>();
+        List<Long> unchangedIds = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            (updated[i] == 0 ? unchangedIds : updatedIds).add(changes.get(i).getBookId());
+        }
+        bookChangeRepository.appendChanges(BookChangeType.STATUS_CHANGED, updatedIds);
+        bookCache.evictBooks(updatedIds);
+        bookBitmapIndex.refreshAfterCommit(updatedIds);
+        if (bookStatusWriteBehind != null) {
+            bookStatusWriteBehind.rebaseAfterCommit(updatedIds);
+        }
+        if (!updatedIds.isEmpty()) {
+            catalogueVersion.bumpAfterCommit();
+        }
+        Set<Long> existingIds = unchangedIds.isEmpty()
+                ? Collections.emptySet()
+                : bookJdbcRepository.findExistingIds(unchangedIds);
+        List<BookStatusResult> results = new ArrayList<>(changes.size());
+        for (int i = 0; i < updated.length; i++) {
+            BookStatusChange change = changes.get(i);
+            StatusChangeOutcome outcome = updated[i] != 0 ? StatusChangeOutcome.UPDATED
+                    : existingIds.contains(change.getBookId()) ? StatusChangeOutcome.CONFLICT
+                    : StatusChangeOutcome.NOT_FOUND;
+            results.add(BookStatusResult.builder()
+                    .bookId(change.getBookId())
+                    .status(change.getStatus())
+                    .outcome(outcome)
+                    .build());
+        }
+        return BookStatusBatchResponse.builder().results(results).build();
+    }
+
+    @Transactional(readOnly = true)
     public ListBookResponse availableBooks() {
-        List<Book> bookList = bookRepository.findByStatusContaining(Status.AVAILABLE);
+        List<Book> bookList = withPendingStatus(bookRepository.findByStatus(Status.AVAILABLE), Status.AVAILABLE);
         if (bookList.isEmpty()) {
             throw new BookNotFoundException(AVAILABLE_BOOKS);
         }
         return createListBookResponse(bookList);
     }
 
-    private BookResponse createdBookResponse(Book book) {
+    BookResponse createdBookResponse(Book book) {
         return BookResponse.builder()
                 .title(book.getTitle())
                 .author(book.getAuthor())
                 .description(book.getDescription())
                 .ISBN(book.getISBN())
-                .genre(book.getGenre())
-                .status(book.getStatus())
+                .genre(EnumMask.copyOf(Genre.class, book.getGenre()))
+                .status(EnumSet.of(statusOf(book)))
                 .build();
     }
 
+    /**
+     * The book's status, with a change still buffered by {@link BookStatusWriteBehind} taking precedence.
+     */
+    private Status statusOf(Book book) {
+        return bookStatusWriteBehind == null
+                ? book.getStatus()
+                : bookStatusWriteBehind.pendingStatus(book.getId()).orElse(book.getStatus());
+    }
+
+    /**
+     * Books with the given status once buffered changes are applied to the ones loaded from the database.
+     */
+    private List<Book> withPendingStatus(List<Book> books, Status status) {
+        if (bookStatusWriteBehind == null) {
+            return books;
+        }
+        List<Book> matching = books.stream()
+                .filter(book -> statusOf(book) == status)
+                .collect(Collectors.toCollection(ArrayList::new));
+        Set<Long> pendingIds = bookStatusWriteBehind.pendingIds(status);
+        matching.forEach(book -> pendingIds.remove(book.getId()));
+        if (!pendingIds.isEmpty()) {
+            matching.addAll(bookRepository.findByIdInOrderById(pendingIds));
+        }
+        return matching;
+    }
+
+    private RuntimeException translateIsbnViolation(DataIntegrityViolationException ex) {
+        if (ex.getCause() instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(Book.ISBN_CONSTRAINT)) {
+            return new BookAlreadyExistsException(BOOK_ALREADY_EXISTS);
+        }
+        return ex;
+    }
+
+    private BookResponse cacheBookResponse(Book book, BookCache.Generation generation) {
+        BookResponse bookResponse = createdBookResponse(book);
+        bookCache.putBook(book.getId(), book.getISBN(), bookResponse, generation);
+        return bookResponse;
+    }
+
     private ListBookResponse createListBookResponse(List<Book> bookList) {
         List<BookResponse> bookResponses = bookList.stream()
                 .map(this::createdBookResponse)
@@ -0,0 +1,342 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.entity.BookChangeType;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.repository.BookChangeRepository;
+import com.example.booksservice.repository.BookJdbcRepository;
+import com.example.booksservice.repository.BookJdbcRepository.VersionedStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind for status toggles. A toggle takes a lock striped by book id and flips the status held in memory,
+ * which status reads in {@link BookService} and the reactive endpoints answer from while it is pending. The
+ * scheduled flush writes only the books whose status differs from the last one written, in batches; toggling a book
+ * back and forth between two flushes writes nothing. Compare-and-set and batch changes are not buffered: they stay
+ * conditional updates on the database, so a conflict is still detected across instances, and the toggles pending
+ * here are replayed on top of them.
+ * <p>
+ * Durability: a toggle is acknowledged before it reaches the database. Once a flush has committed it survives a
+ * crash; toggles made since the last flush are lost on a crash and flushed on a graceful shutdown. A failed flush
+ * keeps its changes pending for the next run. The change feed, the sync endpoint and the bitmap filters describe
+ * the database, so they show a toggle once it is flushed. Each flush is conditional on the row version read with
+ * the status; when the row has moved on, here or on another instance, the pending toggles are re-applied to the
+ * status now in the database and written by the next flush, the same as if they had reached the database after
+ * that write.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "book.status.write-behind.enabled", havingValue = "true")
+public class BookStatusWriteBehind {
+    private final BookJdbcRepository bookJdbcRepository;
+    private final BookChangeRepository bookChangeRepository;
+    private final BookCache bookCache;
+    private final BookBitmapIndex bookBitmapIndex;
+    private final CatalogueVersion catalogueVersion;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Lock[] stripes;
+    private final Map<Long, PendingStatus> pending = new ConcurrentHashMap<>();
+
+    public BookStatusWriteBehind(BookJdbcRepository bookJdbcRepository,
+                                 BookChangeRepository bookChangeRepository,
+                                 BookCache bookCache,
+                                 BookBitmapIndex bookBitmapIndex,
+                                 CatalogueVersion catalogueVersion,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${book.status.write-behind.flush-batch-size:1000}") int batchSize,
+                                 @Value("${book.status.write-behind.lock-stripes:64}") int stripeCount) {
+        this.bookJdbcRepository = bookJdbcRepository;
+        this.bookChangeRepository = bookChangeRepository;
+        this.bookCache = bookCache;
+        this.bookBitmapIndex = bookBitmapIndex;
+        this.catalogueVersion = catalogueVersion;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.stripes = new Lock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Toggles the book's status. Returns false if there is no such book.
+     */
+    public boolean toggle(long id) {
+        Lock lock = stripe(id);
+        lock.lock();
+        try {
+            PendingStatus status = pending.get(id);
+            if (status == null) {
+                Optional<VersionedStatus> written = bookJdbcRepository.findVersionedStatus(id);
+                if (written.isEmpty()) {
+                    return false;
+                }
+                status = PendingStatus.of(written.get());
+            }
+            pending.put(id, status.withCurrent(opposite(status.current())));
+        } finally {
+            lock.unlock();
+        }
+        bookCache.evictBook(id);
+        catalogueVersion.bumpAfterCommit();
+        return true;
+    }
+
+    /**
+     * The status changed in memory and not yet written, if any.
+     */
+    public Optional<Status> pendingStatus(long id) {
+        PendingStatus status = pending.get(id);
+        return status == null || !status.dirty() ? Optional.empty() : Optional.of(status.current());
+    }
+
+    /**
+     * Books whose pending status is {@code status}; the database still has them with the other one.
+     */
+    public Set<Long> pendingIds(Status status) {
+        Set<Long> ids = new TreeSet<>();
+        pending.forEach((id, pendingStatus) -> {
+            if (pendingStatus.dirty() && pendingStatus.current() == status) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Drops the book's pending change once the surrounding transaction commits, for writes that replace the whole
+     * row; the next change reads the book again.
+     */
+    public void discardAfterCommit(long id) {
+        TransactionCallbacks.afterCommit(() -> {
+            Lock lock = stripe(id);
+            lock.lock();
+            try {
+                pending.remove(id);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Re-applies the books' pending toggles to their status in the database once the surrounding transaction
+     * commits, for conditional status writes that bypass the buffer. A book being flushed is rebased when its flush
+     * completes.
+     */
+    public void rebaseAfterCommit(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            for (Long id : ids) {
+                Lock lock = stripe(id);
+                lock.lock();
+                try {
+                    PendingStatus status = pending.get(id);
+                    if (status == null) {
+                        continue;
+                    }
+                    if (status.flushing()) {
+                        pending.put(id, status.withRebase());
+                    } else {
+                        rebase(id, status);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+    }
+
+    public int pendingCount() {
+        return (int) pending.values().stream().filter(PendingStatus::dirty).count();
+    }
+
+    @Scheduled(fixedDelayString = "${book.status.write-behind.flush-interval-ms:200}")
+    public synchronized void flush() {
+        try {
+            int flushed;
+            do {
+                flushed = flushBatch();
+            } while (flushed == batchSize);
+        } catch (DataAccessException ex) {
+            log.warn("Could not flush book statuses, {} stay pending", pendingCount(), ex);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+        int lost = pendingCount();
+        if (lost > 0) {
+            log.error("{} book status changes were not written before shutdown", lost);
+        }
+    }
+
+    private int flushBatch() {
+        List<VersionedStatus> changes = new ArrayList<>();
+        for (Long id : pending.keySet()) {
+            if (changes.size() == batchSize) {
+                break;
+            }
+            Lock lock = stripe(id);
+            lock.lock();
+            try {
+                PendingStatus status = pending.get(id);
+                if (status != null && status.rebase() && rebase(id, status)) {
+                    status = pending.get(id);
+                }
+                if (status == null || status.rebase()) {
+                    continue;
+                }
+                if (!status.dirty()) {
+                    pending.remove(id);
+                } else {
+                    pending.put(id, status.withFlushing(true));
+                    changes.add(new VersionedStatus(id, status.current(), status.version()));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        int[] updated = null;
+        try {
+            updated = transactionTemplate.execute(tx -> write(changes));
+        } finally {
+            for (int i = 0; i < changes.size(); i++) {
+                markWritten(changes.get(i), updated != null, updated != null && updated[i] != 0);
+            }
+        }
+        return changes.size();
+    }
+
+    private int[] write(List<VersionedStatus> changes) {
+        int[] updated = bookJdbcRepository.updateVersionedStatuses(changes);
+        List<Long> updatedIds = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(changes.size());
+        for (int i = 0; i < updated.length; i++) {
+            ids.add(changes.get(i).bookId());
+            if (updated[i] != 0) {
+                updatedIds.add(changes.get(i).bookId());
+            }
+        }
+        bookChangeRepository.appendChanges(BookChangeType.STATUS_CHANGED, updatedIds);
+        bookCache.evictBooks(ids);
+        bookBitmapIndex.refreshAfterCommit(updatedIds);
+        if (!updatedIds.isEmpty()) {
+            catalogueVersion.bumpAfterCommit();
+        }
+        return updated;
+    }
+
+    /**
+     * Applies the outcome of a flushed change. A written book is forgotten once nothing changed during the flush,
+     * otherwise it stays pending against the new version. A book whose version had moved on, or which a
+     * conditional write changed during the flush, is rebased on the database. A failed flush leaves the change as it
+     * was.
+     */
+    private void markWritten(VersionedStatus change, boolean committed, boolean written) {
+        Lock lock = stripe(change.bookId());
+        lock.lock();
+        try {
+            PendingStatus status = pending.get(change.bookId());
+            if (status == null || !status.flushing() || status.version() != change.version()) {
+                return;
+            }
+            if (!committed) {
+                status = status.withFlushing(false);
+            } else if (written) {
+                status = new PendingStatus(change.status(), change.version() + 1, status.current(), false,
+                        status.rebase());
+            } else {
+                log.info("Book {} changed in the database since it was read, re-applying its pending toggle",
+                        change.bookId());
+                status = status.withFlushing(false).withRebase();
+            }
+            if (status.rebase()) {
+                rebase(change.bookId(), status);
+            } else if (status.dirty()) {
+                pending.put(change.bookId(), status);
+            } else {
+                pending.remove(change.bookId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the book's pending change with the same toggles applied to its status now in the database: an odd
+     * number of toggles since the last status written flips that status, an even number leaves nothing to write. If
+     * the database can't be read the change keeps waiting for a rebase, which the next flush retries. Runs under the
+     * book's stripe lock.
+     */
+    private boolean rebase(long id, PendingStatus status) {
+        Optional<VersionedStatus> written;
+        try {
+            written = bookJdbcRepository.findVersionedStatus(id);
+        } catch (DataAccessException ex) {
+            log.warn("Could not re-read book {}, its pending toggle waits for the next flush", id, ex);
+            pending.put(id, status.withFlushing(false).withRebase());
+            return false;
+        }
+        if (written.isEmpty() || !status.dirty()) {
+            pending.remove(id);
+        } else {
+            pending.put(id, PendingStatus.of(written.get()).withCurrent(opposite(written.get().status())));
+        }
+        bookCache.evictBook(id);
+        catalogueVersion.bump();
+        return true;
+    }
+
+    private Lock stripe(long id) {
+        return stripes[Math.floorMod(Long.hashCode(id), stripes.length)];
+    }
+
+    private static Status opposite(Status status) {
+        return status == Status.AVAILABLE ? Status.UNAVAILABLE : Status.AVAILABLE;
+    }
+
+    /**
+     * {@code flushing} is set while the change is being written; {@code rebase} marks a change whose row was
+     * written by someone else since {@code version}, so it must be re-applied to the row before it is flushed.
+     */
+    private record PendingStatus(Status written, long version, Status current, boolean flushing, boolean rebase) {
+        static PendingStatus of(VersionedStatus written) {
+            return new PendingStatus(written.status(), written.version(), written.status(), false, false);
+        }
+
+        boolean dirty() {
+            return written != current;
+        }
+
+        PendingStatus withCurrent(Status current) {
+            return new PendingStatus(written, version, current, flushing, rebase);
+        }
+
+        PendingStatus withFlushing(boolean flushing) {
+            return new PendingStatus(written, version, current, flushing, rebase);
+        }
+
+        PendingStatus withRebase() {
+            return new PendingStatus(written, version, current, flushing, true);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.booksservice.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Version of the catalogue as a whole, for conditional GETs. Bumped once every committed write has finished its
+ * after-commit work (cache eviction), and again by {@link BookBitmapIndex} once its background refresh has applied
+ * the write: filter and facet responses read in between are labelled with the first version and still describe the
+ * old index, so the second bump makes them revalidate instead of answering 304 with stale content. Like
+ * {@link BookCache} and {@link BookBitmapIndex} it only sees writes made through this instance; the epoch keeps
+ * versions from repeating across restarts.
+ */
+@Component
+public class CatalogueVersion {
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0, System.currentTimeMillis()));
+
+    public void bumpAfterCommit() {
+        TransactionCallbacks.afterCommitCompleted(this::bump);
+    }
+
+    void bump() {
+        current.updateAndGet(snapshot -> new Snapshot(snapshot.version() + 1, System.currentTimeMillis()));
+    }
+
+    /**
+     * Must be read before the data it describes, so a response is never labelled newer than its content.
+     */
+    public Snapshot current() {
+        return current.get();
+    }
+
+    public String tag(Snapshot snapshot) {
+        return epoch + "-" + snapshot.version();
+    }
+
+    public record Snapshot(long version, long lastModified) {
+    }
+}
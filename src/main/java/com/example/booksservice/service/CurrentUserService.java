@@ -0,0 +1,62 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.feignclient.ResilientUserClient;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Resolves the id of the caller from the {@code userId} claim of the already validated token.
+ * Only tokens without the claim fall back to library2, and its answer is cached per token for a short TTL.
+ */
+@Service
+public class CurrentUserService {
+    private final ResilientUserClient userClient;
+    private final Cache<String, Long> remoteUserIds;
+
+    public CurrentUserService(ResilientUserClient userClient,
+                              @Value("${library2.current-user.cache-ttl-seconds:30}") long cacheTtlSeconds) {
+        this.userClient = userClient;
+        this.remoteUserIds = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    public Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        Long userId = userIdClaim(authentication);
+        if (userId != null) {
+            return userId;
+        }
+        if (authentication == null || authentication.getCredentials() == null) {
+            return userClient.getCurrentUserId();
+        }
+        String token = authentication.getCredentials().toString();
+        Long cachedUserId = remoteUserIds.getIfPresent(token);
+        if (cachedUserId != null) {
+            return cachedUserId;
+        }
+        Long remoteUserId = userClient.getCurrentUserId();
+        if (remoteUserId != null) {
+            remoteUserIds.put(token, remoteUserId);
+        }
+        return remoteUserId;
+    }
+
+    private Long userIdClaim(Authentication authentication) {
+        if (authentication == null || authentication.getName() == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(authentication.getName());
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+}
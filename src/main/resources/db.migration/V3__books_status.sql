@@ -0,0 +1,16 @@
+ALTER TABLE book_service_schema.books
+    ADD COLUMN status VARCHAR(50) NOT NULL DEFAULT 'UNAVAILABLE';
+
+UPDATE book_service_schema.books b
+SET status = 'AVAILABLE'
+WHERE EXISTS(SELECT 1
+             FROM book_service_schema.book_status s
+             WHERE s.book_id = b.id
+               AND s.status = 'AVAILABLE');
+
+ALTER TABLE book_service_schema.books
+    ALTER COLUMN status DROP DEFAULT;
+
+CREATE INDEX books_status_id_idx ON book_service_schema.books (status, id);
+
+DROP TABLE book_service_schema.book_status;
@@ -0,0 +1,2 @@
+ALTER TABLE book_service_schema.books
+    ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,10 @@
+ALTER TABLE book_service_schema.books
+    ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (
+                setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+                setweight(to_tsvector('simple', coalesce(author, '')), 'B') ||
+                setweight(to_tsvector('simple', coalesce(description, '')), 'C')
+        ) STORED;
+
+CREATE INDEX books_search_vector_idx ON book_service_schema.books USING GIN (search_vector);
+
+CREATE INDEX book_genres_genre_book_id_idx ON book_service_schema.book_genres (genre, book_id);
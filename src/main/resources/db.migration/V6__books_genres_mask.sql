@@ -0,0 +1,19 @@
+ALTER TABLE book_service_schema.books
+    ADD COLUMN genres BIGINT NOT NULL DEFAULT 0;
+
+-- One bit per Genre ordinal, in declaration order.
+UPDATE book_service_schema.books b
+SET genres = g.mask
+FROM (SELECT book_id,
+             bit_or(CAST(1 AS BIGINT) << (array_position(
+                     ARRAY ['FANTASY', 'ADVENTURE', 'HORROR', 'MYSTERY', 'NOVEL', 'DETECTIVE', 'HISTORICAL',
+                         'ROMANCE', 'POETRY', 'ESSAY', 'BIOGRAPHY', 'AUTOBIOGRAPHY', 'SATIRE', 'THRILLER',
+                         'CLASSIC', 'HUMOR', 'TALE'], CAST(genre AS TEXT)) - 1)) AS mask
+      FROM book_service_schema.book_genres
+      GROUP BY book_id) g
+WHERE g.book_id = b.id;
+
+ALTER TABLE book_service_schema.books
+    ALTER COLUMN genres DROP DEFAULT;
+
+DROP TABLE book_service_schema.book_genres;
@@ -0,0 +1,14 @@
+CREATE TABLE book_service_schema.book_changes
+(
+    id         BIGSERIAL PRIMARY KEY,
+    feed_seq   BIGINT,
+    book_id    BIGINT                   NOT NULL,
+    isbn       VARCHAR(255),
+    type       VARCHAR(16)              NOT NULL,
+    status     VARCHAR(16),
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+
+CREATE UNIQUE INDEX book_changes_feed_seq_idx ON book_service_schema.book_changes (feed_seq);
+
+CREATE INDEX book_changes_pending_idx ON book_service_schema.book_changes (id) WHERE feed_seq IS NULL;
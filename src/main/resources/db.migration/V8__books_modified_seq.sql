@@ -0,0 +1,11 @@
+ALTER TABLE book_service_schema.books
+    ADD COLUMN modified_seq BIGINT;
+
+CREATE INDEX books_modified_seq_idx ON book_service_schema.books (modified_seq);
+
+CREATE INDEX book_changes_deleted_idx ON book_service_schema.book_changes (feed_seq) WHERE type = 'DELETED';
+
+INSERT INTO book_service_schema.book_changes (book_id, isbn, type, status)
+SELECT id, isbn, 'CREATED', status
+FROM book_service_schema.books
+ORDER BY id;
@@ -0,0 +1,2 @@
+CREATE INDEX book_changes_expiry_idx ON book_service_schema.book_changes (created_at)
+    WHERE type <> 'DELETED' AND feed_seq IS NOT NULL;
@@ -0,0 +1,69 @@
+package com.example.booksservice.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyLimitFilterTest {
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 0, new ObjectMapper());
+
+    @Test
+    public void doFilter_RejectsRequestsBeyondLimit() throws Exception {
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockHttpServletResponse actuator = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/book/1"), new MockHttpServletResponse(),
+                new MockFilterChain(new HttpServlet() {
+                    @Override
+                    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                        try {
+                            filter.doFilter(new MockHttpServletRequest("GET", "/book/2"), rejected, new MockFilterChain());
+                            filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), actuator, new MockFilterChain());
+                        } catch (Exception ex) {
+                            throw new IOException(ex);
+                        }
+                    }
+                }));
+        MockHttpServletResponse afterRelease = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/book/3"), afterRelease, new MockFilterChain());
+
+        assertEquals(503, rejected.getStatus());
+        assertTrue(rejected.getContentAsString().contains("overloaded"));
+        assertEquals(200, actuator.getStatus());
+        assertEquals(200, afterRelease.getStatus());
+    }
+
+    @Test
+    public void doFilter_AsyncRequestHoldsPermitUntilComplete() throws Exception {
+        MockHttpServletRequest streaming = new MockHttpServletRequest("GET", "/book/stream");
+        streaming.setAsyncSupported(true);
+        filter.doFilter(streaming, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                req.startAsync();
+            }
+        }));
+
+        MockHttpServletResponse whileStreaming = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/book/1"), whileStreaming, new MockFilterChain());
+        streaming.getAsyncContext().complete();
+        MockHttpServletResponse afterComplete = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/book/1"), afterComplete, new MockFilterChain());
+        MockHttpServletResponse nextRequest = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/book/2"), nextRequest, new MockFilterChain());
+
+        assertEquals(503, whileStreaming.getStatus());
+        assertEquals(200, afterComplete.getStatus());
+        assertEquals(200, nextRequest.getStatus());
+    }
+}
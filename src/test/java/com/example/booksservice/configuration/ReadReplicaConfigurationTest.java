@@ -0,0 +1,77 @@
+package com.example.booksservice.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReadReplicaConfigurationTest {
+    private final ReadReplicaConfiguration configuration = new ReadReplicaConfiguration();
+
+    @AfterEach
+    public void tearDown() {
+        configuration.close();
+    }
+
+    @Test
+    public void busyReplica_FallsBackAfterReplicaConnectionTimeout() {
+        seed("timeout-primary", "primary");
+        seed("timeout-replica", "replica-0");
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(url("timeout-primary"));
+        properties.setUsername("sa");
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.datasource.hikari.maximum-pool-size", "1")
+                .withProperty("book.datasource.replica.hikari.connection-timeout", "250");
+        DataSource dataSource = configuration.dataSource(properties, environment, new SimpleMeterRegistry(),
+                List.of(url("timeout-replica")), 1);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate nestedReadOnly = new TransactionTemplate(transactionManager);
+        nestedReadOnly.setReadOnly(true);
+        nestedReadOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        List<Object> reads = readOnly.execute(outer -> {
+            String holding = jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+            long start = System.nanoTime();
+            String fallback = nestedReadOnly.execute(inner ->
+                    jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+            return List.of(holding, fallback, Duration.ofNanos(System.nanoTime() - start));
+        });
+
+        assertEquals("replica-0", reads.get(0));
+        assertEquals("primary", reads.get(1));
+        Duration waited = (Duration) reads.get(2);
+        assertTrue(waited.compareTo(Duration.ofMillis(200)) >= 0 && waited.compareTo(Duration.ofSeconds(5)) < 0,
+                "waited " + waited);
+    }
+
+    private static void seed(String database, String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url(database));
+        dataSource.setUser("sa");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+    }
+
+    private static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+    }
+}
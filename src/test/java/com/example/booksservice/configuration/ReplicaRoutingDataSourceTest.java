@@ -0,0 +1,140 @@
+package com.example.booksservice.configuration;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRoutingDataSourceTest {
+    private DataSource primary;
+    private DataSource firstReplica;
+    private DataSource secondReplica;
+
+    @BeforeEach
+    public void setUp() {
+        primary = database("primary");
+        firstReplica = database("replica-0");
+        secondReplica = database("replica-1");
+    }
+
+    @Test
+    public void readOnlyTransactions_RoundRobinOverReplicas() {
+        Routing routing = routing(Map.of("replica-0", firstReplica), Map.of("replica-1", secondReplica));
+
+        assertEquals("replica-0", routing.read());
+        assertEquals("replica-1", routing.read());
+        assertEquals("replica-0", routing.read());
+        assertEquals("primary", routing.write());
+        assertEquals("primary", routing.jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    public void unavailableReplica_FallsBackUntilHealthy() throws SQLException {
+        DataSource broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new SQLException("connection refused"));
+        Routing routing = routing(Map.of("replica-0", broken), Map.of());
+
+        assertEquals("primary", routing.read());
+        assertEquals(List.of(), routing.dataSource.healthyReplicas());
+
+        doAnswer(invocation -> firstReplica.getConnection()).when(broken).getConnection();
+        routing.dataSource.checkReplicas();
+        assertEquals(List.of("replica-0"), routing.dataSource.healthyReplicas());
+        assertEquals("replica-0", routing.read());
+    }
+
+    @Test
+    public void exhaustedReplicaPool_StaysInRotation() throws SQLException {
+        DataSource busy = mock(DataSource.class);
+        when(busy.getConnection()).thenThrow(new SQLTransientConnectionException(
+                "replica-0 - Connection is not available, request timed out after 30000ms."));
+        Routing routing = routing(Map.of("replica-0", busy), Map.of());
+
+        assertEquals("primary", routing.read());
+        assertEquals(List.of("replica-0"), routing.dataSource.healthyReplicas());
+
+        doAnswer(invocation -> firstReplica.getConnection()).when(busy).getConnection();
+        assertEquals("replica-0", routing.read());
+    }
+
+    @Test
+    public void replicaPoolFailingToConnect_IsTakenOutOfRotation() throws SQLException {
+        DataSource unreachable = mock(DataSource.class);
+        when(unreachable.getConnection()).thenThrow(new SQLTransientConnectionException(
+                "replica-0 - Connection is not available, request timed out after 30000ms.",
+                new SQLException("Connection refused", "08001")));
+        Routing routing = routing(Map.of("replica-0", unreachable), Map.of());
+
+        assertEquals("primary", routing.read());
+        assertEquals(List.of(), routing.dataSource.healthyReplicas());
+    }
+
+    @Test
+    public void failedHealthCheck_TakesReplicaOutOfRotation() throws SQLException {
+        DataSource flaky = mock(DataSource.class);
+        when(flaky.getConnection()).thenThrow(new SQLException("connection refused"));
+        Routing routing = routing(Map.of("replica-0", firstReplica), Map.of("replica-1", flaky));
+
+        routing.dataSource.checkReplicas();
+
+        assertEquals(List.of("replica-0"), routing.dataSource.healthyReplicas());
+        assertEquals("replica-0", routing.read());
+        assertEquals("replica-0", routing.read());
+    }
+
+    private Routing routing(Map<String, DataSource> first, Map<String, DataSource> second) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>(first);
+        replicas.putAll(second);
+        return new Routing(new ReplicaRoutingDataSource(primary, replicas, 1));
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static final class Routing {
+        private final ReplicaRoutingDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+
+        private Routing(ReplicaRoutingDataSource dataSource) {
+            this.dataSource = dataSource;
+            LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(dataSource);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(proxy);
+            this.jdbcTemplate = new JdbcTemplate(proxy);
+            this.readOnly = new TransactionTemplate(transactionManager);
+            this.readOnly.setReadOnly(true);
+            this.readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        private String read() {
+            return readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        }
+
+        private String write() {
+            return readWrite.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        }
+    }
+}
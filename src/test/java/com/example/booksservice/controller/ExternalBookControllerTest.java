@@ -4,7 +4,12 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 import com.example.booksservice.controller.external.ExternalBookController;
+import com.example.booksservice.dto.BookIdsRequest;
+import com.example.booksservice.dto.BookInfoListResponse;
 import com.example.booksservice.dto.BookInfoRequest;
+import com.example.booksservice.dto.BookStatusBatchRequest;
+import com.example.booksservice.dto.BookStatusBatchResponse;
+import com.example.booksservice.dto.BookStatusChange;
 import com.example.booksservice.entity.Status;
 import com.example.booksservice.exception.BookNotFoundException;
 import com.example.booksservice.service.BookService;
@@ -21,6 +26,8 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 
 @ExtendWith(MockitoExtension.class)
 class ExternalBookControllerTest {
@@ -43,7 +50,7 @@ class ExternalBookControllerTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void takeTheBook() throws BookNotFoundException {
-        BookInfoRequest bookInfoRequest = new BookInfoRequest(1L, TITLE, Collections.singleton(Status.AVAILABLE));
+        BookInfoRequest bookInfoRequest = new BookInfoRequest(1L, TITLE, EnumSet.of(Status.AVAILABLE));
         when(bookService.takeTheBook(ID)).thenReturn(bookInfoRequest);
         ResponseEntity<BookInfoRequest> responseEntity = externalBookController.takeTheBook(ID);
         assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
@@ -51,6 +58,17 @@ class ExternalBookControllerTest {
         verify(bookService, times(1)).takeTheBook(ID);
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void takeTheBooks() {
+        BookInfoListResponse listResponse = new BookInfoListResponse(Collections.emptyList(), List.of(ID));
+        when(bookService.takeTheBooks(List.of(ID))).thenReturn(listResponse);
+        ResponseEntity<BookInfoListResponse> responseEntity =
+                externalBookController.takeTheBooks(new BookIdsRequest(List.of(ID)));
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(listResponse, responseEntity.getBody());
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void updateBookStatus() {
@@ -59,5 +77,25 @@ class ExternalBookControllerTest {
         verify(bookService, times(1)).updateBookStatus(ID);
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void compareAndSetStatus() {
+        ResponseEntity<Void> responseEntity = externalBookController.compareAndSetStatus(ID, Status.AVAILABLE);
+        assertEquals(HttpStatus.NO_CONTENT, responseEntity.getStatusCode());
+        verify(bookService, times(1)).compareAndSetStatus(ID, Status.AVAILABLE);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateBookStatuses() {
+        List<BookStatusChange> changes = List.of(new BookStatusChange(ID, Status.UNAVAILABLE));
+        BookStatusBatchResponse batchResponse = new BookStatusBatchResponse();
+        when(bookService.updateBookStatuses(changes)).thenReturn(batchResponse);
+        ResponseEntity<BookStatusBatchResponse> responseEntity =
+                externalBookController.updateBookStatuses(new BookStatusBatchRequest(changes));
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        assertEquals(batchResponse, responseEntity.getBody());
+    }
+
 
 }
\ No newline at end of file
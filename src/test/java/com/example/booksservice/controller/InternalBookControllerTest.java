@@ -6,15 +6,20 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.example.booksservice.configuration.CompactJsonConfiguration;
 import com.example.booksservice.controller.internal.InternalBookController;
+import com.example.booksservice.dto.BookImportResponse;
+import com.example.booksservice.dto.BookPageResponse;
 import com.example.booksservice.dto.BookRequest;
 import com.example.booksservice.dto.BookResponse;
 import com.example.booksservice.dto.ListBookResponse;
 import com.example.booksservice.entity.Genre;
 import com.example.booksservice.entity.Status;
 import com.example.booksservice.exception.BookNotFoundException;
-import com.example.booksservice.feignclient.UserClient;
+import com.example.booksservice.service.BookImportService;
 import com.example.booksservice.service.BookService;
+import com.example.booksservice.service.CatalogueVersion;
+import com.example.booksservice.service.CurrentUserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,16 +28,21 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.Optional;
+import java.util.EnumSet;
 import java.util.Set;
 
 @WebMvcTest(InternalBookController.class)
+@Import(CatalogueVersion.class)
 class InternalBookControllerTest {
     private static final String TITLE = "The Little Prince";
     private static final String AUTHOR = "Antoine de Saint-Exupery";
@@ -48,7 +58,9 @@ class InternalBookControllerTest {
     @InjectMocks
     private InternalBookController bookController;
     @MockBean
-    private UserClient userClient;
+    private CurrentUserService currentUserService;
+    @MockBean
+    private BookImportService bookImportService;
 
     private ObjectMapper objectMapper;
 
@@ -58,6 +70,27 @@ class InternalBookControllerTest {
         MockitoAnnotations.openMocks(this);
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void importBooks() throws Exception {
+        BookImportResponse importResponse = BookImportResponse.builder()
+                .imported(2)
+                .failed(0)
+                .errors(List.of())
+                .build();
+        when(currentUserService.getCurrentUserId()).thenReturn(1L);
+        when(bookImportService.importBooks(any(InputStream.class), eq(1L))).thenReturn(importResponse);
+        String body = objectMapper.writeValueAsString(createBookDto()) + "\n"
+                + objectMapper.writeValueAsString(createBookDto()) + "\n";
+        mockMvc.perform(post("/book/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body)
+                        .with(csrf()))
+                .andExpect(status().isOk())
+                .andExpect(content().json(objectMapper.writeValueAsString(importResponse)));
+        verify(bookImportService, times(1)).importBooks(any(InputStream.class), eq(1L));
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void createBook() throws Exception {
@@ -65,7 +98,7 @@ class InternalBookControllerTest {
         BookResponse bookResponse = new BookResponse();
         bookResponse.setTitle(TITLE);
         bookResponse.setAuthor(AUTHOR);
-        when(userClient.getCurrentUserId()).thenReturn(1L);
+        when(currentUserService.getCurrentUserId()).thenReturn(1L);
         when(bookService.createBook(any(BookRequest.class))).thenReturn(bookResponse);
         ResultActions response = mockMvc.perform(post(URL_CREATE_BOOK)
                 .contentType(MediaType.APPLICATION_JSON)
@@ -85,6 +118,15 @@ class InternalBookControllerTest {
         assertEquals(listBookResponse, response.getBody());
     }
 
+    @Test
+    void findPage() {
+        BookPageResponse pageResponse = new BookPageResponse();
+        when(bookService.findPage(null, 100)).thenReturn(pageResponse);
+        ResponseEntity<BookPageResponse> response = bookController.findPage(100, null);
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(pageResponse, response.getBody());
+    }
+
     @Test
     void findById() throws BookNotFoundException {
         BookResponse bookResponse = new BookResponse();
@@ -94,6 +136,56 @@ class InternalBookControllerTest {
         assertEquals(bookResponse, response.getBody());
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findById_CompactJson() throws Exception {
+        BookResponse bookResponse = BookResponse.builder()
+                .title(TITLE)
+                .genre(EnumSet.of(Genre.FANTASY, Genre.TALE))
+                .status(EnumSet.of(Status.AVAILABLE))
+                .build();
+        when(bookService.findById(1L)).thenReturn(Optional.of(bookResponse));
+        mockMvc.perform(get("/book/1").accept(CompactJsonConfiguration.COMPACT_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CompactJsonConfiguration.COMPACT_JSON))
+                .andExpect(jsonPath("$.genre").value(1 | 1 << Genre.TALE.ordinal()))
+                .andExpect(jsonPath("$.status").value(1 << Status.AVAILABLE.ordinal()));
+        mockMvc.perform(get("/book/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genre[0]").value(Genre.FANTASY.name()));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findAll_NotModified() throws Exception {
+        when(bookService.findAll()).thenReturn(ListBookResponse.builder().responseList(List.of()).build());
+        String etag = mockMvc.perform(get("/book/books").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/book/books").accept(MediaType.APPLICATION_JSON).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/book/books").accept(MediaType.APPLICATION_NDJSON).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"));
+        verify(bookService, times(1)).findAll();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void errors_CarryNoValidators() throws Exception {
+        when(bookService.findById(1L)).thenReturn(Optional.empty());
+        when(bookService.availableBooks()).thenThrow(new BookNotFoundException("No available books"));
+        mockMvc.perform(get("/book/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(header().doesNotExist("Last-Modified"));
+        mockMvc.perform(get("/book/available-books").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(header().doesNotExist("Last-Modified"));
+    }
+
     @Test
     void findByISBN() throws BookNotFoundException {
         BookResponse bookResponse = new BookResponse();
@@ -126,8 +218,8 @@ class InternalBookControllerTest {
         bookDto.setAuthor(AUTHOR);
         bookDto.setISBN(ISBN);
         bookDto.setDescription(DESCRIPTION);
-        bookDto.setGenre(Set.of(Genre.FANTASY, Genre.TALE));
-        bookDto.setStatus(Set.of(Status.AVAILABLE));
+        bookDto.setGenre(EnumSet.of(Genre.FANTASY, Genre.TALE));
+        bookDto.setStatus(EnumSet.of(Status.AVAILABLE));
         return bookDto;
     }
 }
@@ -0,0 +1,100 @@
+package com.example.booksservice.controller;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.example.booksservice.controller.internal.ReactiveBookController;
+import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.feignclient.UserClient;
+import com.example.booksservice.repository.BookReactiveRepository;
+import com.example.booksservice.service.CatalogueVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumSet;
+
+@WebMvcTest(ReactiveBookController.class)
+@Import(CatalogueVersion.class)
+class ReactiveBookControllerTest {
+    private static final String TITLE = "The Little Prince";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookReactiveRepository bookReactiveRepository;
+    @MockBean
+    private UserClient userClient;
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findById() throws Exception {
+        when(bookReactiveRepository.findById(1L)).thenReturn(Mono.just(createBookResponse(TITLE)));
+        MvcResult result = mockMvc.perform(get("/book/reactive/1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value(TITLE));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findById_NotFound() throws Exception {
+        when(bookReactiveRepository.findById(2L)).thenReturn(Mono.empty());
+        MvcResult result = mockMvc.perform(get("/book/reactive/2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findAll() throws Exception {
+        when(bookReactiveRepository.findAll())
+                .thenReturn(Flux.just(createBookResponse(TITLE), createBookResponse("Dune")));
+        MvcResult result = mockMvc.perform(get("/book/reactive/books").accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.responseList.length()").value(2));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void streamAvailableBooks() throws Exception {
+        when(bookReactiveRepository.findByStatus(Status.AVAILABLE))
+                .thenReturn(Flux.just(createBookResponse(TITLE), createBookResponse("Dune")));
+        MvcResult result = mockMvc.perform(get("/book/reactive/available-books").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"title\":\"Dune\"")));
+    }
+
+    private BookResponse createBookResponse(String title) {
+        return BookResponse.builder()
+                .title(title)
+                .genre(EnumSet.of(Genre.TALE))
+                .status(EnumSet.of(Status.AVAILABLE))
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.booksservice.feignclient;
+
+import com.sun.net.httpserver.HttpServer;
+import feign.Feign;
+import feign.Request;
+import feign.RetryableException;
+import feign.Retryer;
+import feign.Util;
+import feign.httpclient.ApacheHttpClient;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the real Feign + pooled Apache client stack against a local stub of library2 that can inject latency.
+ */
+public class ResilientUserClientTest {
+    private static final int CALLERS = 50;
+    private static final int MAX_CONCURRENT_CALLS = 4;
+    private static final int READ_TIMEOUT_MS = 300;
+
+    private HttpServer library2;
+    private volatile long latencyMs;
+    private final AtomicInteger hits = new AtomicInteger();
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private ResilientUserClient resilientUserClient;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        library2 = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        library2.setExecutor(Executors.newCachedThreadPool());
+        library2.createContext("/external/user/current-user", exchange -> {
+            hits.incrementAndGet();
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "42".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        library2.start();
+
+        UserClient userClient = Feign.builder()
+                .client(new ApacheHttpClient(HttpClients.custom()
+                        .setMaxConnTotal(CALLERS)
+                        .setMaxConnPerRoute(CALLERS)
+                        .build()))
+                .contract(new SpringMvcContract())
+                .decoder((response, type) -> Long.valueOf(Util.toString(response.body().asReader(StandardCharsets.UTF_8))))
+                .options(new Request.Options(100, TimeUnit.MILLISECONDS, READ_TIMEOUT_MS, TimeUnit.MILLISECONDS, true))
+                .retryer(Retryer.NEVER_RETRY)
+                .target(UserClient.class, "http://localhost:" + library2.getAddress().getPort());
+        circuitBreaker = CircuitBreaker.of("library2", CircuitBreakerConfig.custom()
+                .slidingWindowSize(MAX_CONCURRENT_CALLS)
+                .minimumNumberOfCalls(MAX_CONCURRENT_CALLS)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+        bulkhead = Bulkhead.of("library2", BulkheadConfig.custom()
+                .maxConcurrentCalls(MAX_CONCURRENT_CALLS)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        resilientUserClient = new ResilientUserClient(userClient, circuitBreaker, bulkhead);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        library2.stop(0);
+    }
+
+    @Test
+    public void getCurrentUserId_Success() {
+        latencyMs = 0;
+        assertEquals(42L, resilientUserClient.getCurrentUserId());
+    }
+
+    @Test
+    public void getCurrentUserId_SlowLibrary2_ShedsLoadInsteadOfStalling() throws Exception {
+        latencyMs = 5_000;
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        List<Future<Long>> calls = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            calls.add(callers.submit(resilientUserClient::getCurrentUserId));
+        }
+        int timedOut = 0;
+        int rejected = 0;
+        for (Future<Long> call : calls) {
+            Throwable failure = assertThrows(Exception.class, call::get).getCause();
+            if (failure instanceof RetryableException) {
+                timedOut++;
+            } else if (failure instanceof BulkheadFullException || failure instanceof CallNotPermittedException) {
+                rejected++;
+            } else {
+                fail("Unexpected failure: " + failure);
+            }
+        }
+        callers.shutdownNow();
+
+        assertTrue(timedOut <= MAX_CONCURRENT_CALLS, "only the bulkhead's permits may reach library2");
+        assertTrue(hits.get() <= MAX_CONCURRENT_CALLS, "library2 saw " + hits.get() + " calls");
+        assertEquals(CALLERS, timedOut + rejected);
+        assertEquals(MAX_CONCURRENT_CALLS, bulkhead.getMetrics().getAvailableConcurrentCalls());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(timedOut, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+
+        int hitsBeforeOpenCall = hits.get();
+        assertThrows(CallNotPermittedException.class, resilientUserClient::getCurrentUserId);
+        assertEquals(hitsBeforeOpenCall, hits.get());
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.booksservice.jwt;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.Authentication;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JWTTokenProviderTest {
+    private static final String SECRET = "jwtyandexzen";
+
+    private final FakeClock clock = new FakeClock(Instant.now());
+
+    @Test
+    public void validateToken_CacheHitSkipsVerification() throws JWTAuthenticationException {
+        JWTTokenProvider provider = provider(10);
+        String token = token(builder -> builder.withExpiresAt(Date.from(clock.instant().plus(Duration.ofMinutes(10)))));
+
+        Authentication authentication = provider.validateToken(token);
+
+        assertEquals("7", authentication.getPrincipal());
+        assertEquals("ADMIN", authentication.getAuthorities().iterator().next().getAuthority());
+        assertSame(authentication, provider.validateToken(token));
+    }
+
+    @Test
+    public void validateToken_EntryExpiresAtExp() throws JWTAuthenticationException {
+        JWTTokenProvider provider = provider(10);
+        String token = token(builder -> builder.withExpiresAt(Date.from(clock.instant().plus(Duration.ofMinutes(10)))));
+        Authentication authentication = provider.validateToken(token);
+
+        clock.advance(Duration.ofMinutes(10).minusSeconds(1));
+        assertSame(authentication, provider.validateToken(token));
+
+        clock.advance(Duration.ofSeconds(2));
+        assertNotSame(authentication, provider.validateToken(token));
+    }
+
+    @Test
+    public void validateToken_TokenWithoutExpKeptFiveMinutes() throws JWTAuthenticationException {
+        JWTTokenProvider provider = provider(10);
+        String token = token(builder -> builder);
+        Authentication authentication = provider.validateToken(token);
+
+        clock.advance(Duration.ofMinutes(5).minusSeconds(1));
+        assertSame(authentication, provider.validateToken(token));
+
+        clock.advance(Duration.ofSeconds(2));
+        assertNotSame(authentication, provider.validateToken(token));
+    }
+
+    @Test
+    public void validateToken_MaximumSizeZeroDisablesCache() throws JWTAuthenticationException {
+        JWTTokenProvider provider = provider(0);
+        String token = token(builder -> builder);
+
+        assertNotSame(provider.validateToken(token), provider.validateToken(token));
+    }
+
+    @Test
+    public void validateToken_InvalidTokenIsNotCached() {
+        JWTTokenProvider provider = provider(10);
+        String token = JWT.create()
+                .withIssuer("library2")
+                .sign(Algorithm.HMAC256("another secret"));
+
+        assertThrows(JWTAuthenticationException.class, () -> provider.validateToken(token));
+        assertThrows(JWTAuthenticationException.class, () -> provider.validateToken(token));
+    }
+
+    private JWTTokenProvider provider(long cacheMaximumSize) {
+        return new JWTTokenProvider(SECRET, cacheMaximumSize, new SimpleMeterRegistry(), clock);
+    }
+
+    private static String token(TokenCustomizer customizer) {
+        JWTCreator.Builder builder = JWT.create()
+                .withIssuer("library2")
+                .withClaim("userId", 7L)
+                .withArrayClaim("roles", new String[]{"ADMIN"});
+        return customizer.customize(builder)
+                .sign(Algorithm.HMAC256(Base64.getEncoder().encodeToString(SECRET.getBytes())));
+    }
+
+    private interface TokenCustomizer {
+        JWTCreator.Builder customize(JWTCreator.Builder builder);
+    }
+
+    private static final class FakeClock extends Clock {
+        private Instant now;
+
+        private FakeClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.booksservice.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SqlRequestMetricsFilterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqlRequestMetricsFilter filter = new SqlRequestMetricsFilter(meterRegistry);
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:sql-metrics;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(new SqlMetricsDataSource(dataSource));
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS books (id BIGINT PRIMARY KEY)");
+    }
+
+    @Test
+    public void doFilter_RecordsStatementsPerUriPattern() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/book/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/book/{id}");
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                jdbcTemplate.queryForList("SELECT id FROM books", Long.class);
+                jdbcTemplate.batchUpdate("MERGE INTO books KEY (id) VALUES (?)", List.of(new Object[]{1L}, new Object[]{2L}));
+            }
+        }));
+
+        DistributionSummary statements = meterRegistry.get("http.server.requests.sql.statements")
+                .tags("method", "GET", "uri", "/book/{id}")
+                .summary();
+        Timer time = meterRegistry.get("http.server.requests.sql.time")
+                .tags("method", "GET", "uri", "/book/{id}")
+                .timer();
+        assertEquals(1, statements.count());
+        assertEquals(2.0, statements.totalAmount());
+        assertEquals(1, time.count());
+        assertTrue(time.totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void statementsOutsideRequests_AreNotRecorded() throws Exception {
+        jdbcTemplate.queryForList("SELECT id FROM books", Long.class);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/missing"), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals(0.0, meterRegistry.get("http.server.requests.sql.statements")
+                .tags("uri", "UNKNOWN")
+                .summary()
+                .totalAmount());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.booksservice.repository;
+
+import com.example.booksservice.dto.BookChange;
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.BookChangeType;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.feignclient.UserClient;
+import com.example.booksservice.repository.BookChangeRepository.SyncRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The outbox queries that run unchanged on H2. Stamping needs Postgres (advisory locks, UPDATE ... FROM) and is
+ * only exercised against mocks.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import(BookChangeRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookChangeRepositoryTest {
+    private static final Instant OLD = Instant.now().minus(Duration.ofDays(60));
+    private static final Instant RECENT = Instant.now().minus(Duration.ofHours(1));
+    private static final Instant CUTOFF = Instant.now().minus(Duration.ofDays(30));
+
+    @Autowired
+    private BookChangeRepository bookChangeRepository;
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @MockBean
+    private UserClient userClient;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS book_service_schema.book_changes (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, feed_seq BIGINT, book_id BIGINT NOT NULL, " +
+                "isbn VARCHAR(255), type VARCHAR(16) NOT NULL, status VARCHAR(16), " +
+                "created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE book_service_schema.book_changes");
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void deleteExpired_KeepsTombstonesPendingRecentAndLatestChanges() {
+        insertChange(1L, 1, BookChangeType.CREATED, OLD);
+        insertChange(2L, 2, BookChangeType.CREATED, OLD);
+        insertChange(3L, 2, BookChangeType.DELETED, OLD);
+        insertChange(4L, 1, BookChangeType.UPDATED, RECENT);
+        insertChange(5L, 1, BookChangeType.STATUS_CHANGED, OLD);
+        insertChange(null, 3, BookChangeType.CREATED, OLD);
+
+        assertEquals(1, bookChangeRepository.deleteExpired(CUTOFF, 1));
+        assertEquals(1, bookChangeRepository.deleteExpired(CUTOFF, 1));
+        assertEquals(0, bookChangeRepository.deleteExpired(CUTOFF, 1));
+
+        assertEquals(List.of(3L, 4L, 5L), jdbcTemplate.queryForList("SELECT feed_seq FROM " +
+                "book_service_schema.book_changes WHERE feed_seq IS NOT NULL ORDER BY feed_seq", Long.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM book_service_schema.book_changes " +
+                "WHERE feed_seq IS NULL", Integer.class));
+        assertEquals(List.of(3L, 4L, 5L), bookChangeRepository.findChanges(0, 10).stream()
+                .map(BookChange::getSeq)
+                .toList());
+    }
+
+    @Test
+    void findSyncRows_MergesModifiedBooksAndTombstonesInFeedOrder() {
+        long first = saveBook("9999999999991", 2L);
+        long second = saveBook("9999999999992", 6L);
+        saveBook("9999999999993", null);
+        insertChange(4L, 42, BookChangeType.DELETED, OLD);
+        insertChange(5L, 43, BookChangeType.UPDATED, OLD);
+        insertChange(7L, 44, BookChangeType.DELETED, RECENT);
+
+        assertEquals(List.of(new SyncRow(2L, first, false), new SyncRow(4L, 42, true),
+                new SyncRow(6L, second, false), new SyncRow(7L, 44, true)), bookChangeRepository.findSyncRows(0, 10));
+        assertEquals(List.of(new SyncRow(6L, second, false)), bookChangeRepository.findSyncRows(4, 1));
+    }
+
+    private long saveBook(String ISBN, Long modifiedSeq) {
+        Book book = new Book();
+        book.setTitle("The Little Prince");
+        book.setAuthor("Antoine de Saint-Exupery");
+        book.setDescription("The fairy tale tells about a Little Prince who visit various planets");
+        book.setISBN(ISBN);
+        book.setGenre(EnumSet.of(Genre.TALE));
+        book.setStatus(Status.AVAILABLE);
+        long id = bookRepository.save(book).getId();
+        jdbcTemplate.update("UPDATE book_service_schema.books SET modified_seq = ? WHERE id = ?", modifiedSeq, id);
+        return id;
+    }
+
+    private void insertChange(Long feedSeq, long bookId, BookChangeType type, Instant createdAt) {
+        jdbcTemplate.update("INSERT INTO book_service_schema.book_changes (feed_seq, book_id, type, created_at) " +
+                "VALUES (?, ?, ?, ?)", feedSeq, bookId, type.name(), Timestamp.from(createdAt));
+    }
+}
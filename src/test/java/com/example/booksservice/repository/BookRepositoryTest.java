@@ -0,0 +1,126 @@
+package com.example.booksservice.repository;
+
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.feignclient.UserClient;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+class BookRepositoryTest {
+    private static final int BOOKS = 1000;
+    private static final String TITLE = "The Little Prince";
+    private static final String AUTHOR = "Antoine de Saint-Exupery";
+    private static final String DESCRIPTION = "The fairy tale tells about a Little Prince who visit various planets";
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private TestEntityManager entityManager;
+    @MockBean
+    private UserClient userClient;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle(TITLE);
+            book.setAuthor(AUTHOR);
+            book.setDescription(DESCRIPTION);
+            book.setISBN(String.format("%013d", i));
+            book.setGenre(EnumSet.of(Genre.FANTASY, Genre.TALE));
+            book.setStatus(i % 2 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE);
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        assertTrue(statistics.isStatisticsEnabled());
+        statistics.clear();
+    }
+
+    @Test
+    void findAll_LoadsDetailsInOneStatement() {
+        List<Book> books = bookRepository.findAll();
+        assertEquals(BOOKS, books.size());
+        books.forEach(this::touchDetails);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByStatus_LoadsDetailsInOneStatement() {
+        List<Book> books = bookRepository.findByStatus(Status.AVAILABLE);
+        assertEquals(BOOKS / 2, books.size());
+        books.forEach(this::touchDetails);
+        assertTrue(books.stream().allMatch(book -> book.getStatus() == Status.AVAILABLE));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void toggleStatus_FlipsAvailabilityInPlace() {
+        Book book = bookRepository.findByISBN(String.format("%013d", 0)).orElseThrow();
+        assertEquals(1, bookRepository.toggleStatus(book.getId()));
+        entityManager.clear();
+        assertEquals(Status.UNAVAILABLE, bookRepository.findById(book.getId()).orElseThrow().getStatus());
+        assertEquals(0, bookRepository.toggleStatus(-1L));
+    }
+
+    @Test
+    void findPage_LoadsDetailsInTwoStatements() {
+        List<Long> ids = bookRepository.findIdsAfter(0L, PageRequest.of(0, 500));
+        List<Book> books = bookRepository.findByIdInOrderById(ids);
+        assertEquals(500, books.size());
+        books.forEach(this::touchDetails);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByISBN_LoadsDetailsInOneStatement() {
+        Optional<Book> book = bookRepository.findByISBN(String.format("%013d", 42));
+        assertTrue(book.isPresent());
+        touchDetails(book.get());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void saveAndFlush_DuplicateISBN_ViolatesIsbnConstraint() {
+        Book duplicate = new Book();
+        duplicate.setTitle(TITLE);
+        duplicate.setAuthor(AUTHOR);
+        duplicate.setDescription(DESCRIPTION);
+        duplicate.setISBN(String.format("%013d", 7));
+        duplicate.setGenre(EnumSet.of(Genre.TALE));
+        duplicate.setStatus(Status.AVAILABLE);
+        DataIntegrityViolationException ex = assertThrows(DataIntegrityViolationException.class,
+                () -> bookRepository.saveAndFlush(duplicate));
+        ConstraintViolationException violation = assertInstanceOf(ConstraintViolationException.class, ex.getCause());
+        assertTrue(violation.getConstraintName().toLowerCase(Locale.ROOT).contains(Book.ISBN_CONSTRAINT));
+    }
+
+    private void touchDetails(Book book) {
+        assertEquals(2, book.getGenre().size());
+    }
+}
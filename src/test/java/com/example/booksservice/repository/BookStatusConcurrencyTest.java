@@ -0,0 +1,118 @@
+package com.example.booksservice.repository;
+
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.feignclient.UserClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookStatusConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int TOGGLES = 4000;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private UserClient userClient;
+
+    private TransactionTemplate transactionTemplate;
+    private long id;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        Book book = new Book();
+        book.setTitle("The Little Prince");
+        book.setAuthor("Antoine de Saint-Exupery");
+        book.setDescription("The fairy tale tells about a Little Prince who visit various planets");
+        book.setISBN("9999999999999");
+        book.setGenre(EnumSet.of(Genre.TALE));
+        book.setStatus(Status.AVAILABLE);
+        id = bookRepository.save(book).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void compareAndSetStatus_NoLostUpdates() throws Exception {
+        AtomicInteger checkouts = new AtomicInteger();
+        AtomicInteger returns = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < TOGGLES; i++) {
+            Status expected = i % 2 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE;
+            Status target = expected == Status.AVAILABLE ? Status.UNAVAILABLE : Status.AVAILABLE;
+            AtomicInteger successes = expected == Status.AVAILABLE ? checkouts : returns;
+            tasks.add(() -> {
+                Integer updated = transactionTemplate.execute(status ->
+                        bookRepository.compareAndSetStatus(id, expected, target));
+                if (updated != null && updated == 1) {
+                    successes.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        Book book = bookRepository.findById(id).orElseThrow();
+        int difference = checkouts.get() - returns.get();
+        assertTrue(difference == 0 || difference == 1);
+        assertEquals(difference == 0 ? Status.AVAILABLE : Status.UNAVAILABLE, book.getStatus());
+        assertEquals(checkouts.get() + returns.get(), book.getVersion());
+    }
+
+    @Test
+    void toggleStatus_NoLostUpdates() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < TOGGLES; i++) {
+            tasks.add(() -> {
+                transactionTemplate.execute(status -> bookRepository.toggleStatus(id));
+                return null;
+            });
+        }
+        runConcurrently(tasks);
+
+        Book book = bookRepository.findById(id).orElseThrow();
+        assertEquals(TOGGLES, book.getVersion());
+        assertEquals(Status.AVAILABLE, book.getStatus());
+    }
+
+    private void runConcurrently(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.dto.BookFacetResponse;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.repository.BookJdbcRepository;
+import com.example.booksservice.repository.BookJdbcRepository.FacetRowHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class BookBitmapIndexTest {
+    @Mock
+    private BookJdbcRepository bookJdbcRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private CatalogueVersion catalogueVersion;
+
+    private final Map<Long, Status> statuses = new TreeMap<>();
+    private final Map<Long, EnumSet<Genre>> genres = new HashMap<>();
+    private final Deque<Runnable> refresherTasks = new ArrayDeque<>();
+    private boolean databaseDown;
+    private BookBitmapIndex bookBitmapIndex;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        putRow(1L, Status.AVAILABLE, EnumSet.of(Genre.FANTASY, Genre.TALE));
+        putRow(2L, Status.UNAVAILABLE, EnumSet.of(Genre.FANTASY));
+        putRow(3L, Status.AVAILABLE, EnumSet.of(Genre.DETECTIVE));
+        putRow(4L, Status.AVAILABLE, EnumSet.noneOf(Genre.class));
+        doAnswer(invocation -> {
+            checkDatabase();
+            FacetRowHandler handler = invocation.getArgument(0);
+            statuses.forEach((id, status) -> handler.accept(id, status, genres.get(id)));
+            return null;
+        }).when(bookJdbcRepository).forEachFacet(any(FacetRowHandler.class));
+        doAnswer(invocation -> {
+            checkDatabase();
+            Collection<Long> ids = invocation.getArgument(0);
+            FacetRowHandler handler = invocation.getArgument(1);
+            ids.stream()
+                    .filter(statuses::containsKey)
+                    .forEach(id -> handler.accept(id, statuses.get(id), genres.get(id)));
+            return null;
+        }).when(bookJdbcRepository).forEachFacet(anyCollection(), any(FacetRowHandler.class));
+        bookBitmapIndex = new BookBitmapIndex(bookJdbcRepository, transactionTemplate, catalogueVersion,
+                refresherTasks::add);
+        bookBitmapIndex.rebuild();
+    }
+
+    @Test
+    public void findIds_FiltersByGenreAndStatus() {
+        assertEquals(List.of(1L), bookBitmapIndex.findIds(Set.of(Genre.FANTASY), Status.AVAILABLE, 0L, 10));
+        assertEquals(List.of(1L, 2L, 3L), bookBitmapIndex.findIds(Set.of(Genre.FANTASY, Genre.DETECTIVE), null, 0L, 10));
+        assertEquals(List.of(3L, 4L), bookBitmapIndex.findIds(null, Status.AVAILABLE, 1L, 10));
+        assertEquals(List.of(1L, 2L), bookBitmapIndex.findIds(null, null, 0L, 2));
+        assertEquals(List.of(), bookBitmapIndex.findIds(null, null, BookBitmapIndex.MAX_BOOK_ID, 2));
+    }
+
+    @Test
+    public void findIds_LeavesIndexBitmapsUnchanged() {
+        assertEquals(List.of(1L), bookBitmapIndex.findIds(Set.of(Genre.FANTASY), Status.AVAILABLE, 0L, 10));
+        assertEquals(List.of(2L), bookBitmapIndex.findIds(Set.of(Genre.FANTASY), Status.UNAVAILABLE, 0L, 10));
+        assertEquals(List.of(1L, 2L), bookBitmapIndex.findIds(Set.of(Genre.FANTASY), null, 0L, 10));
+        assertEquals(List.of(1L, 3L, 4L), bookBitmapIndex.findIds(null, Status.AVAILABLE, 0L, 10));
+    }
+
+    @Test
+    public void facets_CountsWithinFilter() {
+        BookFacetResponse facets = bookBitmapIndex.facets(null, Status.AVAILABLE);
+        assertEquals(3, facets.getTotal());
+        assertEquals(1L, facets.getGenres().get(Genre.FANTASY));
+        assertEquals(1L, facets.getGenres().get(Genre.DETECTIVE));
+        assertEquals(0L, facets.getStatuses().get(Status.UNAVAILABLE));
+    }
+
+    @Test
+    public void refresh_ReindexesChangedAndDeletedBooks() {
+        putRow(2L, Status.AVAILABLE, EnumSet.of(Genre.TALE));
+        statuses.remove(3L);
+
+        bookBitmapIndex.refreshAfterCommit(List.of(2L, 3L));
+        assertEquals(List.of(1L), bookBitmapIndex.findIds(Set.of(Genre.TALE), Status.AVAILABLE, 0L, 10));
+        runRefresher();
+
+        assertEquals(List.of(1L, 2L), bookBitmapIndex.findIds(Set.of(Genre.TALE), Status.AVAILABLE, 0L, 10));
+        assertEquals(List.of(1L), bookBitmapIndex.findIds(Set.of(Genre.FANTASY), null, 0L, 10));
+        assertEquals(3, bookBitmapIndex.facets(null, null).getTotal());
+    }
+
+    @Test
+    public void refresh_BumpsCatalogueVersionOnceApplied() {
+        putRow(2L, Status.AVAILABLE, EnumSet.of(Genre.FANTASY));
+        List<List<Long>> seenAtBump = new ArrayList<>();
+        doAnswer(invocation -> seenAtBump.add(bookBitmapIndex.findIds(Set.of(Genre.FANTASY), Status.AVAILABLE, 0L, 10)))
+                .when(catalogueVersion).bump();
+
+        bookBitmapIndex.refreshAfterCommit(2L);
+        verify(catalogueVersion, never()).bump();
+        runRefresher();
+
+        assertEquals(List.of(List.of(1L, 2L)), seenAtBump);
+    }
+
+    @Test
+    public void refresh_CoalescesIdsQueuedMeanwhile() {
+        bookBitmapIndex.refreshAfterCommit(2L);
+        bookBitmapIndex.refreshAfterCommit(List.of(3L, 2L));
+        assertEquals(1, refresherTasks.size());
+
+        runRefresher();
+
+        verify(bookJdbcRepository, times(1)).forEachFacet(anyCollection(), any(FacetRowHandler.class));
+        verify(bookJdbcRepository).forEachFacet(eq(Set.of(2L, 3L)), any(FacetRowHandler.class));
+    }
+
+    @Test
+    public void failedRefresh_RebuildsOnRefresherAndRetriesOnSchedule() {
+        putRow(2L, Status.AVAILABLE, EnumSet.of(Genre.FANTASY));
+        databaseDown = true;
+        bookBitmapIndex.refreshAfterCommit(2L);
+        runRefresher();
+        assertEquals(List.of(1L), bookBitmapIndex.findIds(Set.of(Genre.FANTASY), Status.AVAILABLE, 0L, 10));
+        verify(catalogueVersion, never()).bump();
+
+        bookBitmapIndex.refreshAfterCommit(1L);
+        assertEquals(0, refresherTasks.size());
+
+        databaseDown = false;
+        bookBitmapIndex.retryFailedRefresh();
+        runRefresher();
+
+        assertEquals(List.of(1L, 2L), bookBitmapIndex.findIds(Set.of(Genre.FANTASY), Status.AVAILABLE, 0L, 10));
+        verify(bookJdbcRepository, times(3)).forEachFacet(any(FacetRowHandler.class));
+        verify(catalogueVersion, times(1)).bump();
+        bookBitmapIndex.retryFailedRefresh();
+        assertEquals(0, refresherTasks.size());
+    }
+
+    private void putRow(long id, Status status, EnumSet<Genre> bookGenres) {
+        statuses.put(id, status);
+        genres.put(id, bookGenres);
+    }
+
+    private void checkDatabase() {
+        if (databaseDown) {
+            throw new QueryTimeoutException("database unavailable");
+        }
+    }
+
+    private void runRefresher() {
+        while (!refresherTasks.isEmpty()) {
+            refresherTasks.poll().run();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.dto.BookInfoRequest;
+import com.example.booksservice.dto.BookResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookCacheTest {
+    private static final String ISBN = "9999999999999";
+
+    private BookCache bookCache;
+
+    @BeforeEach
+    public void setUp() {
+        bookCache = new BookCache(new ConcurrentMapCacheManager(BookCache.BOOKS, BookCache.BOOK_INFO,
+                BookCache.BOOK_IDS));
+    }
+
+    @Test
+    public void putBook_CachesWhenNothingChanged() {
+        BookCache.Generation generation = bookCache.generation(1L);
+        bookCache.putBook(1L, ISBN, book("fresh"), generation);
+        assertEquals("fresh", bookCache.getBook(1L).getTitle());
+        assertEquals("fresh", bookCache.getBookByISBN(ISBN).getTitle());
+    }
+
+    @Test
+    public void putBook_SkipsRowLoadedBeforeEviction() {
+        BookCache.Generation byId = bookCache.generation(1L);
+        BookCache.Generation byISBN = bookCache.generationOfAnyBook();
+        bookCache.evictBook(1L);
+
+        bookCache.putBook(1L, ISBN, book("stale"), byId);
+        assertNull(bookCache.getBook(1L));
+        bookCache.putBook(1L, ISBN, book("stale"), byISBN);
+        assertNull(bookCache.getBookByISBN(ISBN));
+    }
+
+    @Test
+    public void putBookInfo_SkipsRowLoadedBeforeEviction() {
+        BookCache.Generation generation = bookCache.generation(1L);
+        bookCache.evictBooks(List.of(1L, 2L));
+        bookCache.putBookInfo(BookInfoRequest.builder().bookId(1L).title("stale").build(), generation);
+        assertNull(bookCache.getBookInfo(1L));
+
+        BookCache.Generation unrelated = bookCache.generation(3L);
+        bookCache.evictBook(1L);
+        bookCache.putBookInfo(BookInfoRequest.builder().bookId(3L).title("fresh").build(), unrelated);
+        assertNotNull(bookCache.getBookInfo(3L));
+    }
+
+    private BookResponse book(String title) {
+        return BookResponse.builder().title(title).ISBN(ISBN).build();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.repository.BookChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class BookChangeRelayTest {
+    @Mock
+    private BookChangeRepository bookChangeRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private BookChangeRelay bookChangeRelay;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        bookChangeRelay = new BookChangeRelay(bookChangeRepository, transactionTemplate, 2, 30);
+    }
+
+    @Test
+    public void relay_StampsUntilBatchIsNotFull() {
+        when(bookChangeRepository.tryLockRelay()).thenReturn(true);
+        when(bookChangeRepository.stampPending(2)).thenReturn(2, 2, 1);
+
+        bookChangeRelay.relay();
+
+        verify(bookChangeRepository, times(3)).stampPending(2);
+    }
+
+    @Test
+    public void relay_SkipsWhenAnotherInstanceHoldsTheLock() {
+        when(bookChangeRepository.tryLockRelay()).thenReturn(false);
+
+        bookChangeRelay.relay();
+
+        verify(bookChangeRepository, never()).stampPending(anyInt());
+    }
+
+    @Test
+    public void deleteExpired_DeletesBatchesOlderThanRetention() {
+        when(bookChangeRepository.deleteExpired(any(), eq(2))).thenReturn(2, 2, 0);
+        Instant before = Instant.now();
+
+        bookChangeRelay.deleteExpired();
+
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(bookChangeRepository, times(3)).deleteExpired(cutoff.capture(), eq(2));
+        assertTrue(Duration.between(cutoff.getValue(), before).minusDays(30).abs().getSeconds() < 60);
+        verify(transactionTemplate, never()).execute(any());
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.dto.BookImportError;
+import com.example.booksservice.dto.BookImportResponse;
+import com.example.booksservice.dto.BookRequest;
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.repository.BookChangeRepository;
+import com.example.booksservice.repository.BookJdbcRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BookImportServiceTest {
+    private static final String TITLE = "The Little Prince";
+    private static final String AUTHOR = "Antoine de Saint-Exupery";
+    private static final String DESCRIPTION = "The fairy tale tells about a Little Prince who visit various planets";
+    private static final String EXISTING_ISBN = "9999999999999";
+    private static final Long USER_ID = 7L;
+
+    @Mock
+    private BookJdbcRepository bookJdbcRepository;
+    @Mock
+    private BookChangeRepository bookChangeRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private BookBitmapIndex bookBitmapIndex;
+    @Mock
+    private CatalogueVersion catalogueVersion;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<List<Book>> batches = new ArrayList<>();
+    private BookImportService bookImportService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        when(bookJdbcRepository.insertBooks(anyList())).thenAnswer(invocation -> {
+            List<Book> books = new ArrayList<>(invocation.getArgument(0));
+            batches.add(books);
+            Set<Long> insertedIds = new HashSet<>();
+            for (Book book : books) {
+                book.setId(1000L + book.getISBN().hashCode());
+                if (!EXISTING_ISBN.equals(book.getISBN())) {
+                    insertedIds.add(book.getId());
+                }
+            }
+            return insertedIds;
+        });
+        bookImportService = new BookImportService(objectMapper,
+                Validation.buildDefaultValidatorFactory().getValidator(), bookJdbcRepository, bookChangeRepository,
+                transactionTemplate, bookBitmapIndex, catalogueVersion, 2);
+    }
+
+    @Test
+    public void importBooks_NdjsonReportsRowErrors() throws Exception {
+        BookRequest blankTitle = createBookDto("0000000000002");
+        blankTitle.setTitle("");
+        String body = ndjson(createBookDto("0000000000001"), blankTitle, createBookDto("0000000000001"),
+                createBookDto(EXISTING_ISBN), createBookDto("0000000000003"));
+
+        BookImportResponse response = bookImportService.importBooks(stream(body), USER_ID);
+
+        assertEquals(2, response.getImported());
+        assertEquals(3, response.getFailed());
+        assertEquals(List.of(2, 3, 4), response.getErrors().stream()
+                .map(BookImportError::getRow)
+                .collect(Collectors.toList()));
+        assertEquals(EXISTING_ISBN, response.getErrors().get(2).getISBN());
+        assertEquals(2, batches.size());
+        assertTrue(batches.stream().flatMap(List::stream).allMatch(book -> USER_ID.equals(book.getUserId())));
+    }
+
+    @Test
+    public void importBooks_JsonArray() throws Exception {
+        String body = objectMapper.writeValueAsString(List.of(createBookDto("0000000000001"),
+                createBookDto("0000000000002"), createBookDto("0000000000003")));
+
+        BookImportResponse response = bookImportService.importBooks(stream(body), USER_ID);
+
+        assertEquals(3, response.getImported());
+        assertEquals(0, response.getFailed());
+        assertEquals(List.of(2, 1), batches.stream().map(List::size).collect(Collectors.toList()));
+        verify(catalogueVersion, times(2)).bumpAfterCommit();
+    }
+
+    @Test
+    public void importBooks_MalformedInputStopsAfterCommittedRows() throws Exception {
+        String body = ndjson(createBookDto("0000000000001")) + "{\"title\": ";
+
+        BookImportResponse response = bookImportService.importBooks(stream(body), USER_ID);
+
+        assertEquals(1, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(2, response.getErrors().get(0).getRow());
+    }
+
+    private String ndjson(BookRequest... books) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (BookRequest book : books) {
+            body.append(objectMapper.writeValueAsString(book)).append('\n');
+        }
+        return body.toString();
+    }
+
+    private InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private BookRequest createBookDto(String ISBN) {
+        return BookRequest.builder()
+                .title(TITLE)
+                .author(AUTHOR)
+                .description(DESCRIPTION)
+                .ISBN(ISBN)
+                .genre(EnumSet.of(Genre.TALE))
+                .status(EnumSet.of(Status.AVAILABLE))
+                .build();
+    }
+}
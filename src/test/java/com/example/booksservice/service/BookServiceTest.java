@@ -1,22 +1,44 @@
 package com.example.booksservice.service;
 
+import com.example.booksservice.dto.BookChange;
+import com.example.booksservice.dto.BookChangesResponse;
+import com.example.booksservice.dto.BookInfoListResponse;
 import com.example.booksservice.dto.BookInfoRequest;
+import com.example.booksservice.dto.BookPageResponse;
 import com.example.booksservice.dto.BookRequest;
 import com.example.booksservice.dto.BookResponse;
+import com.example.booksservice.dto.BookSearchResponse;
+import com.example.booksservice.dto.BookStatusBatchResponse;
+import com.example.booksservice.dto.BookStatusChange;
+import com.example.booksservice.dto.BookSyncResponse;
 import com.example.booksservice.dto.ListBookResponse;
+import com.example.booksservice.dto.StatusChangeOutcome;
 import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.BookChangeType;
 import com.example.booksservice.entity.Genre;
 import com.example.booksservice.entity.Status;
 import com.example.booksservice.exception.BookAlreadyExistsException;
 import com.example.booksservice.exception.BookNotFoundException;
+import com.example.booksservice.exception.BookStatusConflictException;
+import com.example.booksservice.exception.InvalidPageRequestException;
+import com.example.booksservice.repository.BookChangeRepository;
+import com.example.booksservice.repository.BookChangeRepository.SyncRow;
+import com.example.booksservice.repository.BookJdbcRepository;
 import com.example.booksservice.repository.BookRepository;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 
+import javax.persistence.EntityManager;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hibernate.validator.internal.util.Contracts.assertNotNull;
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,6 +60,18 @@ public class BookServiceTest {
 
     @Mock
     private BookRepository bookRepository;
+    @Mock
+    private BookJdbcRepository bookJdbcRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private BookCache bookCache;
+    @Mock
+    private BookBitmapIndex bookBitmapIndex;
+    @Mock
+    private CatalogueVersion catalogueVersion;
+    @Mock
+    private BookChangeRepository bookChangeRepository;
 
     @InjectMocks
     private BookService bookService;
@@ -51,23 +85,38 @@ public class BookServiceTest {
     public void createBook_Success() {
         BookRequest bookRequest = createBookDto();
         Book book = createBook(bookRequest);
-        when(bookRepository.findByISBN(book.getISBN())).thenReturn(Optional.empty());
-        when(bookRepository.save(book)).thenReturn(book);
+        when(bookRepository.saveAndFlush(book)).thenReturn(book);
         BookResponse response = bookService.createBook(bookRequest);
         assertNotNull(response);
         assertEquals(TITLE, response.getTitle());
-        verify(bookRepository, times(1)).save(book);
+        verify(bookRepository, times(1)).saveAndFlush(book);
+        verify(bookRepository, never()).findByISBN(anyString());
+        verify(catalogueVersion).bumpAfterCommit();
+        verify(bookChangeRepository).appendChanges(BookChangeType.CREATED, List.of(book.getId()));
     }
 
     @Test
     public void createBook_AlreadyExists() {
         BookRequest bookRequest = createBookDto();
         Book book = createBook(bookRequest);
-        when(bookRepository.findByISBN(book.getISBN())).thenReturn(Optional.of(book));
+        when(bookRepository.saveAndFlush(book)).thenThrow(isbnViolation());
         Exception exception = assertThrows(BookAlreadyExistsException.class, () -> {
             bookService.createBook(bookRequest);
         });
         assertEquals(BOOK_ALREADY_EXISTS, exception.getMessage());
+        verify(catalogueVersion, never()).bumpAfterCommit();
+    }
+
+    @Test
+    public void createBook_OtherConstraintViolation() {
+        BookRequest bookRequest = createBookDto();
+        Book book = createBook(bookRequest);
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException(), "books_title_check"));
+        when(bookRepository.saveAndFlush(book)).thenThrow(violation);
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class, () -> {
+            bookService.createBook(bookRequest);
+        }));
     }
 
     @Test
@@ -90,6 +139,141 @@ public class BookServiceTest {
         assertEquals(BOOKS_NOT_FOUND, exception.getMessage());
     }
 
+    @Test
+    public void findPage_HasNextPage() {
+        List<Book> books = new ArrayList<>();
+        for (long id = 1; id <= 2; id++) {
+            Book book = createBook(createBookDto());
+            book.setId(id);
+            books.add(book);
+        }
+        when(bookRepository.findIdsAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(1L, 2L, 3L));
+        when(bookRepository.findByIdInOrderById(List.of(1L, 2L))).thenReturn(books);
+        BookPageResponse response = bookService.findPage(null, 2);
+        assertEquals(2, response.getResponseList().size());
+        assertEquals(2L, BookCursor.decode(response.getNextCursor()));
+    }
+
+    @Test
+    public void findPage_LastPage() {
+        Book book = createBook(createBookDto());
+        book.setId(3L);
+        when(bookRepository.findIdsAfter(eq(2L), any(Pageable.class))).thenReturn(List.of(3L));
+        when(bookRepository.findByIdInOrderById(List.of(3L))).thenReturn(List.of(book));
+        BookPageResponse response = bookService.findPage(BookCursor.encode(2L), 2);
+        assertEquals(1, response.getResponseList().size());
+        assertNull(response.getNextCursor());
+    }
+
+    @Test
+    public void filter_PagesThroughBitmapMatches() {
+        Book book = createBook(createBookDto());
+        book.setId(5L);
+        when(bookBitmapIndex.findIds(Set.of(Genre.FANTASY), Status.AVAILABLE, 0L, 2)).thenReturn(List.of(5L, 9L));
+        when(bookRepository.findByIdInOrderById(List.of(5L))).thenReturn(List.of(book));
+        BookPageResponse response = bookService.filter(Set.of(Genre.FANTASY), Status.AVAILABLE, null, 1);
+        assertEquals(1, response.getResponseList().size());
+        assertEquals(5L, BookCursor.decode(response.getNextCursor()));
+    }
+
+    @Test
+    public void filter_CursorBeyondIndexRange() {
+        String cursor = BookCursor.encode(BookBitmapIndex.MAX_BOOK_ID + 1);
+        assertThrows(InvalidPageRequestException.class,
+                () -> bookService.filter(Set.of(Genre.FANTASY), null, cursor, 10));
+        verifyNoInteractions(bookBitmapIndex);
+    }
+
+    @Test
+    public void search_KeepsRankOrder() {
+        List<Book> books = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Book book = createBook(createBookDto());
+            book.setId(id);
+            book.setTitle(TITLE + " " + id);
+            books.add(book);
+        }
+        when(bookJdbcRepository.searchIds("prince", Set.of(Genre.TALE), Status.AVAILABLE, 0, 3))
+                .thenReturn(List.of(3L, 1L, 2L));
+        when(bookRepository.findByIdInOrderById(List.of(3L, 1L))).thenReturn(List.of(books.get(0), books.get(2)));
+        BookSearchResponse response = bookService.search(" prince ", Set.of(Genre.TALE), Status.AVAILABLE, 0, 2);
+        assertTrue(response.isHasNext());
+        assertEquals(List.of(TITLE + " 3", TITLE + " 1"), response.getResponseList().stream()
+                .map(BookResponse::getTitle)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void findChanges_PagesByFeedPosition() {
+        List<BookChange> changes = List.of(
+                BookChange.builder().seq(11).bookId(1).type(BookChangeType.CREATED).build(),
+                BookChange.builder().seq(12).bookId(2).type(BookChangeType.DELETED).build(),
+                BookChange.builder().seq(13).bookId(1).type(BookChangeType.STATUS_CHANGED).build());
+        when(bookChangeRepository.findChanges(10L, 3)).thenReturn(changes);
+        BookChangesResponse response = bookService.findChanges(10L, 2);
+        assertEquals(changes.subList(0, 2), response.getChanges());
+        assertEquals(12L, response.getNextSince());
+        assertTrue(response.isHasMore());
+
+        when(bookChangeRepository.findChanges(13L, 3)).thenReturn(List.of());
+        BookChangesResponse caughtUp = bookService.findChanges(13L, 2);
+        assertEquals(13L, caughtUp.getNextSince());
+        assertFalse(caughtUp.isHasMore());
+
+        assertThrows(InvalidPageRequestException.class, () -> bookService.findChanges(-1L, 2));
+    }
+
+    @Test
+    public void sync_ReturnsBooksAndTombstonesInSeqOrder() {
+        Book live = createBook(createBookDto());
+        live.setId(1L);
+        when(bookChangeRepository.findSyncRows(10L, 4)).thenReturn(List.of(
+                new SyncRow(11, 1, false),
+                new SyncRow(12, 2, true),
+                new SyncRow(13, 3, false),
+                new SyncRow(14, 4, false)));
+        when(bookRepository.findByIdInOrderById(List.of(1L, 3L))).thenReturn(List.of(live));
+
+        BookSyncResponse response = bookService.sync(10L, 3);
+
+        assertEquals(2, response.getChanges().size());
+        assertEquals(live.getTitle(), response.getChanges().get(0).getBook().getTitle());
+        assertTrue(response.getChanges().get(1).isDeleted());
+        assertEquals(2L, response.getChanges().get(1).getBookId());
+        assertEquals(13L, response.getNextSince());
+        assertTrue(response.isHasMore());
+
+        assertThrows(InvalidPageRequestException.class, () -> bookService.sync(-1L, 3));
+        assertThrows(InvalidPageRequestException.class, () -> bookService.sync(0L, 0));
+    }
+
+    @Test
+    public void search_InvalidRequest() {
+        assertThrows(InvalidPageRequestException.class, () -> bookService.search("prince", null, null, 0, 0));
+        assertThrows(InvalidPageRequestException.class, () -> bookService.search("prince", null, null, 1_000, 20));
+        verifyNoInteractions(bookJdbcRepository);
+    }
+
+    @Test
+    public void findPage_InvalidRequest() {
+        assertThrows(InvalidPageRequestException.class, () -> bookService.findPage(null, 0));
+        assertThrows(InvalidPageRequestException.class, () -> bookService.findPage("not-a-cursor", 10));
+    }
+
+    @Test
+    public void streamAll_DetachesEveryBook() {
+        Book first = createBook(createBookDto());
+        Book second = createBook(createBookDto());
+        first.setId(1L);
+        second.setId(2L);
+        when(bookRepository.streamAll()).thenReturn(Stream.of(first, second));
+        List<BookResponse> responses = new ArrayList<>();
+        bookService.streamAll(responses::add);
+        assertEquals(2, responses.size());
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
     @Test
     public void findById_Success() {
         Book book = createBook(createBookDto());
@@ -97,6 +281,16 @@ public class BookServiceTest {
         Optional<BookResponse> response = bookService.findById(1L);
         assertTrue(response.isPresent());
         assertEquals(TITLE, response.get().getTitle());
+        verify(bookCache, times(1)).putBook(any(), eq(ISBN), any(BookResponse.class), any());
+    }
+
+    @Test
+    public void findById_FromCache() {
+        when(bookCache.getBook(1L)).thenReturn(BookResponse.builder().title(TITLE).build());
+        Optional<BookResponse> response = bookService.findById(1L);
+        assertTrue(response.isPresent());
+        assertEquals(TITLE, response.get().getTitle());
+        verifyNoInteractions(bookRepository);
     }
 
     @Test
@@ -144,6 +338,15 @@ public class BookServiceTest {
         assertEquals(BOOK_BY_ISBN, exception.getMessage());
     }
 
+    @Test
+    public void takeTheBooks_ReportsMissingIds() {
+        BookInfoRequest found = new BookInfoRequest(2L, TITLE, EnumSet.of(Status.AVAILABLE));
+        when(bookJdbcRepository.findBookInfoByIds(Set.of(1L, 2L))).thenReturn(List.of(found));
+        BookInfoListResponse response = bookService.takeTheBooks(List.of(2L, 1L, 2L));
+        assertEquals(List.of(found), response.getBooks());
+        assertEquals(List.of(1L), response.getMissingIds());
+    }
+
     @Test
     public void deleteBookByISBN_Success() {
         Book book = createBook(createBookDto());
@@ -166,20 +369,36 @@ public class BookServiceTest {
         String ISBN = "1234567890758";
         BookRequest bookRequest = createBookDto();
         Book existingBook = createBook(bookRequest);
-        Book updatedBook = new Book();
-        updatedBook.setISBN(ISBN);
-        updatedBook.setTitle(bookRequest.getTitle());
-        updatedBook.setAuthor(bookRequest.getAuthor());
-        updatedBook.setDescription(bookRequest.getDescription());
-        updatedBook.setGenre(bookRequest.getGenre());
-        updatedBook.setStatus(bookRequest.getStatus());
+        existingBook.setISBN(ISBN);
+        existingBook.setTitle("Old title");
         when(bookRepository.findByISBN(ISBN)).thenReturn(Optional.of(existingBook)); // Найти существующую книгу
-        when(bookRepository.findByISBN(existingBook.getISBN())).thenReturn(Optional.empty()); // Проверка, что другой книги с тем же ISBN нет
-        when(bookRepository.save(any(Book.class))).thenReturn(updatedBook); // Сохранить обновлённую книгу
         BookResponse response = bookService.updateBookByISBN(ISBN, bookRequest);
         assertNotNull(response);
         assertEquals(bookRequest.getTitle(), response.getTitle());
-        verify(bookRepository, times(1)).save(any(Book.class));
+        assertEquals(bookRequest.getISBN(), existingBook.getISBN());
+        verify(bookRepository, times(1)).findByISBN(ISBN);
+        verify(bookRepository, times(1)).flush();
+        verify(bookRepository, never()).save(any(Book.class));
+    }
+
+    @Test
+    public void updateBookByISBN_KeepsSameISBN() {
+        BookRequest bookRequest = createBookDto();
+        Book existingBook = createBook(bookRequest);
+        when(bookRepository.findByISBN(ISBN)).thenReturn(Optional.of(existingBook));
+        BookResponse response = bookService.updateBookByISBN(ISBN, bookRequest);
+        assertEquals(ISBN, response.getISBN());
+    }
+
+    @Test
+    public void updateBookByISBN_ISBNTaken() {
+        BookRequest bookRequest = createBookDto();
+        when(bookRepository.findByISBN("1234567890758")).thenReturn(Optional.of(createBook(bookRequest)));
+        doThrow(isbnViolation()).when(bookRepository).flush();
+        Exception exception = assertThrows(BookAlreadyExistsException.class, () -> {
+            bookService.updateBookByISBN("1234567890758", bookRequest);
+        });
+        assertEquals(BOOK_ALREADY_EXISTS, exception.getMessage());
     }
 
     @Test
@@ -194,11 +413,62 @@ public class BookServiceTest {
 
     @Test
     public void updateBookStatus_Success() {
-        Book book = createBook(createBookDto());
-        when(bookRepository.findById(ID)).thenReturn(Optional.of(book));
+        when(bookRepository.toggleStatus(ID)).thenReturn(1);
         bookService.updateBookStatus(ID);
-        assertTrue(book.getStatus().contains(Status.UNAVAILABLE));
-        verify(bookRepository, times(1)).save(book);
+        verify(bookRepository, times(1)).toggleStatus(ID);
+        verify(bookRepository, never()).save(any(Book.class));
+        verify(bookCache, times(1)).evictBook(ID);
+        verify(bookBitmapIndex, times(1)).refreshAfterCommit(ID);
+    }
+
+    @Test
+    public void updateBookStatus_NotFound() {
+        when(bookRepository.toggleStatus(ID)).thenReturn(0);
+        Exception exception = assertThrows(BookNotFoundException.class, () -> {
+            bookService.updateBookStatus(ID);
+        });
+        assertEquals(BOOK_BY_ID, exception.getMessage());
+    }
+
+    @Test
+    public void compareAndSetStatus_Success() {
+        when(bookRepository.compareAndSetStatus(ID, Status.AVAILABLE, Status.UNAVAILABLE)).thenReturn(1);
+        bookService.compareAndSetStatus(ID, Status.AVAILABLE);
+        verify(bookRepository, times(1)).compareAndSetStatus(ID, Status.AVAILABLE, Status.UNAVAILABLE);
+        verify(bookRepository, never()).existsById(ID);
+    }
+
+    @Test
+    public void compareAndSetStatus_Conflict() {
+        when(bookRepository.compareAndSetStatus(ID, Status.UNAVAILABLE, Status.AVAILABLE)).thenReturn(0);
+        when(bookRepository.existsById(ID)).thenReturn(true);
+        assertThrows(BookStatusConflictException.class, () -> {
+            bookService.compareAndSetStatus(ID, Status.UNAVAILABLE);
+        });
+    }
+
+    @Test
+    public void compareAndSetStatus_NotFound() {
+        when(bookRepository.compareAndSetStatus(ID, Status.AVAILABLE, Status.UNAVAILABLE)).thenReturn(0);
+        when(bookRepository.existsById(ID)).thenReturn(false);
+        Exception exception = assertThrows(BookNotFoundException.class, () -> {
+            bookService.compareAndSetStatus(ID, Status.AVAILABLE);
+        });
+        assertEquals(BOOK_BY_ID, exception.getMessage());
+    }
+
+    @Test
+    public void updateBookStatuses_ReportsOutcomePerBook() {
+        List<BookStatusChange> changes = List.of(
+                new BookStatusChange(1L, Status.UNAVAILABLE),
+                new BookStatusChange(2L, Status.UNAVAILABLE),
+                new BookStatusChange(3L, Status.AVAILABLE));
+        when(bookJdbcRepository.updateStatuses(changes)).thenReturn(new int[]{1, 0, 0});
+        when(bookJdbcRepository.findExistingIds(List.of(2L, 3L))).thenReturn(Set.of(2L));
+        BookStatusBatchResponse response = bookService.updateBookStatuses(changes);
+        assertEquals(StatusChangeOutcome.UPDATED, response.getResults().get(0).getOutcome());
+        assertEquals(StatusChangeOutcome.CONFLICT, response.getResults().get(1).getOutcome());
+        assertEquals(StatusChangeOutcome.NOT_FOUND, response.getResults().get(2).getOutcome());
     }
 
     @Test
@@ -206,7 +476,7 @@ public class BookServiceTest {
         List<Book> books = new ArrayList<>();
         books.add(createBook(createBookDto()));
         books.add(createBook(createBookDto()));
-        when(bookRepository.findByStatusContaining(Status.AVAILABLE)).thenReturn(books);
+        when(bookRepository.findByStatus(Status.AVAILABLE)).thenReturn(books);
         ListBookResponse response = bookService.availableBooks();
         assertNotNull(response);
         assertEquals(2, response.getResponseList().size());
@@ -214,7 +484,7 @@ public class BookServiceTest {
 
     @Test
     public void availableBooks_NoBooks() {
-        when(bookRepository.findByStatusContaining(Status.AVAILABLE)).thenReturn(Collections.emptyList());
+        when(bookRepository.findByStatus(Status.AVAILABLE)).thenReturn(Collections.emptyList());
         Exception exception = assertThrows(BookNotFoundException.class, () -> {
             bookService.availableBooks();
         });
@@ -228,19 +498,24 @@ public class BookServiceTest {
         bookDto.setAuthor(AUTHOR);
         bookDto.setISBN(ISBN);
         bookDto.setDescription(DESCRIPTION);
-        bookDto.setGenre(Set.of(Genre.FANTASY, Genre.TALE));
-        bookDto.setStatus(Set.of(Status.AVAILABLE));
+        bookDto.setGenre(EnumSet.of(Genre.FANTASY, Genre.TALE));
+        bookDto.setStatus(EnumSet.of(Status.AVAILABLE));
         return bookDto;
     }
 
+    private DataIntegrityViolationException isbnViolation() {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException(), Book.ISBN_CONSTRAINT));
+    }
+
     private Book createBook(BookRequest bookDto) {
         Book book = new Book();
         book.setTitle(bookDto.getTitle());
         book.setAuthor(bookDto.getAuthor());
         book.setISBN(bookDto.getISBN());
         book.setDescription(bookDto.getDescription());
-        book.setGenre(bookDto.getGenre());
-        book.setStatus(bookDto.getStatus());
+        book.setGenre(EnumSet.copyOf(bookDto.getGenre()));
+        book.setStatus(Status.AVAILABLE);
         return book;
     }
 }
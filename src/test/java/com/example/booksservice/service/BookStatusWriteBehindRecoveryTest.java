@@ -0,0 +1,221 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.entity.Book;
+import com.example.booksservice.entity.Genre;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.feignclient.UserClient;
+import com.example.booksservice.repository.BookChangeRepository;
+import com.example.booksservice.repository.BookJdbcRepository;
+import com.example.booksservice.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Write-behind against the real status statements and transactions on H2: toggles racing the flush and conditional
+ * writes made past the buffer, as by another instance, and an instance dropped without its shutdown flush.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@Import(BookJdbcRepository.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookStatusWriteBehindRecoveryTest {
+    private static final int BOOKS = 8;
+    private static final int THREADS = 16;
+    private static final int TOGGLES = 4000;
+
+    @Autowired
+    private BookRepository bookRepository;
+    @Autowired
+    private BookJdbcRepository bookJdbcRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @MockBean
+    private UserClient userClient;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book();
+            book.setTitle("The Little Prince");
+            book.setAuthor("Antoine de Saint-Exupery");
+            book.setDescription("The fairy tale tells about a Little Prince who visit various planets");
+            book.setISBN(String.format("%013d", i));
+            book.setGenre(EnumSet.of(Genre.TALE));
+            book.setStatus(Status.AVAILABLE);
+            ids.add(bookRepository.save(book).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void togglesRacingFlushes_NoLostUpdates() throws Exception {
+        BookStatusWriteBehind writeBehind = newInstance();
+        AtomicIntegerArray toggles = new AtomicIntegerArray(BOOKS);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < TOGGLES; i++) {
+            int book = i % BOOKS;
+            tasks.add(() -> {
+                assertTrue(writeBehind.toggle(ids.get(book)));
+                toggles.incrementAndGet(book);
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (!done.get()) {
+                    writeBehind.flush();
+                }
+            });
+            for (Future<Void> future : executor.invokeAll(tasks.subList(0, TOGGLES / 2))) {
+                future.get();
+            }
+            for (Future<Void> future : executor.invokeAll(tasks.subList(TOGGLES / 2, TOGGLES))) {
+                future.get();
+            }
+            done.set(true);
+            flusher.get();
+        } finally {
+            executor.shutdown();
+        }
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.pendingCount());
+        for (int i = 0; i < BOOKS; i++) {
+            assertEquals(toggles.get(i) % 2 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE, statusOf(ids.get(i)));
+        }
+    }
+
+    @Test
+    void crash_KeepsFlushedChangesOnly() {
+        BookStatusWriteBehind writeBehind = newInstance();
+        writeBehind.toggle(ids.get(0));
+        writeBehind.toggle(ids.get(1));
+        writeBehind.flush();
+        writeBehind.toggle(ids.get(0));
+        writeBehind.toggle(ids.get(2));
+        assertEquals(2, writeBehind.pendingCount());
+
+        BookStatusWriteBehind restarted = newInstance();
+
+        assertEquals(Status.UNAVAILABLE, statusOf(ids.get(0)));
+        assertEquals(Status.UNAVAILABLE, statusOf(ids.get(1)));
+        assertEquals(Status.AVAILABLE, statusOf(ids.get(2)));
+        assertEquals(0, restarted.pendingCount());
+        assertTrue(restarted.toggle(ids.get(0)));
+        restarted.flush();
+        Book book = bookRepository.findById(ids.get(0)).orElseThrow();
+        assertEquals(Status.AVAILABLE, book.getStatus());
+        assertEquals(2, book.getVersion());
+    }
+
+    @Test
+    void flush_ReappliesToggleOnStatusWrittenMeanwhile() {
+        BookStatusWriteBehind writeBehind = newInstance();
+        long id = ids.get(0);
+        writeBehind.toggle(id);
+        transactionTemplate.execute(status -> bookRepository.compareAndSetStatus(id, Status.AVAILABLE,
+                Status.UNAVAILABLE));
+
+        writeBehind.flush();
+        assertEquals(Status.UNAVAILABLE, statusOf(id));
+        assertEquals(Optional.of(Status.AVAILABLE), writeBehind.pendingStatus(id));
+
+        writeBehind.flush();
+        Book book = bookRepository.findById(id).orElseThrow();
+        assertEquals(Status.AVAILABLE, book.getStatus());
+        assertEquals(2, book.getVersion());
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    void togglesRacingConditionalWrites_NoLostUpdates() throws Exception {
+        BookStatusWriteBehind writeBehind = newInstance();
+        AtomicIntegerArray flips = new AtomicIntegerArray(BOOKS);
+        AtomicBoolean done = new AtomicBoolean();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < TOGGLES / 4; i++) {
+            int book = i % BOOKS;
+            Status expected = i % 3 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE;
+            tasks.add(i % 2 == 0
+                    ? () -> {
+                        assertTrue(writeBehind.toggle(ids.get(book)));
+                        flips.incrementAndGet(book);
+                        return null;
+                    }
+                    : () -> {
+                        Integer updated = transactionTemplate.execute(status -> bookRepository.compareAndSetStatus(
+                                ids.get(book), expected, expected == Status.AVAILABLE ? Status.UNAVAILABLE
+                                        : Status.AVAILABLE));
+                        if (updated != null && updated == 1) {
+                            flips.incrementAndGet(book);
+                        }
+                        return null;
+                    });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            Future<?> flusher = executor.submit(() -> {
+                while (!done.get()) {
+                    writeBehind.flush();
+                }
+            });
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            done.set(true);
+            flusher.get();
+        } finally {
+            executor.shutdown();
+        }
+        while (writeBehind.pendingCount() > 0) {
+            writeBehind.flush();
+        }
+
+        for (int i = 0; i < BOOKS; i++) {
+            assertEquals(flips.get(i) % 2 == 0 ? Status.AVAILABLE : Status.UNAVAILABLE, statusOf(ids.get(i)));
+        }
+    }
+
+    private Status statusOf(long id) {
+        return bookRepository.findById(id).orElseThrow().getStatus();
+    }
+
+    private BookStatusWriteBehind newInstance() {
+        return new BookStatusWriteBehind(bookJdbcRepository, mock(BookChangeRepository.class), mock(BookCache.class),
+                mock(BookBitmapIndex.class), mock(CatalogueVersion.class), transactionTemplate, 3, 4);
+    }
+}
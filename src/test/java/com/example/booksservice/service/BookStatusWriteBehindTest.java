@@ -0,0 +1,168 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.entity.BookChangeType;
+import com.example.booksservice.entity.Status;
+import com.example.booksservice.repository.BookChangeRepository;
+import com.example.booksservice.repository.BookJdbcRepository;
+import com.example.booksservice.repository.BookJdbcRepository.VersionedStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class BookStatusWriteBehindTest {
+    @Mock
+    private BookJdbcRepository bookJdbcRepository;
+    @Mock
+    private BookChangeRepository bookChangeRepository;
+    @Mock
+    private BookCache bookCache;
+    @Mock
+    private BookBitmapIndex bookBitmapIndex;
+    @Mock
+    private CatalogueVersion catalogueVersion;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<Long, VersionedStatus> database = new HashMap<>();
+    private final List<List<VersionedStatus>> writes = new ArrayList<>();
+    private BookStatusWriteBehind writeBehind;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        database.put(1L, new VersionedStatus(1L, Status.AVAILABLE, 0));
+        database.put(2L, new VersionedStatus(2L, Status.AVAILABLE, 0));
+        runTransactions();
+        when(bookJdbcRepository.findVersionedStatus(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(database.get(invocation.<Long>getArgument(0))));
+        when(bookJdbcRepository.updateVersionedStatuses(anyList())).thenAnswer(invocation -> {
+            List<VersionedStatus> changes = invocation.getArgument(0);
+            writes.add(List.copyOf(changes));
+            int[] updated = new int[changes.size()];
+            for (int i = 0; i < changes.size(); i++) {
+                VersionedStatus change = changes.get(i);
+                VersionedStatus row = database.get(change.bookId());
+                if (row != null && row.version() == change.version()) {
+                    database.put(change.bookId(), new VersionedStatus(change.bookId(), change.status(),
+                            row.version() + 1));
+                    updated[i] = 1;
+                }
+            }
+            return updated;
+        });
+        writeBehind = new BookStatusWriteBehind(bookJdbcRepository, bookChangeRepository, bookCache,
+                bookBitmapIndex, catalogueVersion, transactionTemplate, 100, 4);
+    }
+
+    @Test
+    public void flush_CoalescesTogglesIntoOneWritePerBook() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writeBehind.toggle(1L));
+        }
+        assertTrue(writeBehind.toggle(2L));
+        assertTrue(writeBehind.toggle(2L));
+        assertEquals(1, writeBehind.pendingCount());
+        assertEquals(Optional.of(Status.UNAVAILABLE), writeBehind.pendingStatus(1L));
+        assertEquals(Set.of(1L), writeBehind.pendingIds(Status.UNAVAILABLE));
+
+        writeBehind.flush();
+
+        assertEquals(List.of(List.of(new VersionedStatus(1L, Status.UNAVAILABLE, 0))), writes);
+        assertEquals(Status.UNAVAILABLE, database.get(1L).status());
+        assertEquals(Status.AVAILABLE, database.get(2L).status());
+        verify(bookJdbcRepository, times(1)).findVersionedStatus(1L);
+        verify(bookChangeRepository).appendChanges(BookChangeType.STATUS_CHANGED, List.of(1L));
+        verify(bookCache, times(3)).evictBook(1L);
+        assertEquals(0, writeBehind.pendingCount());
+        assertEquals(Optional.empty(), writeBehind.pendingStatus(1L));
+    }
+
+    @Test
+    public void flush_ReappliesToggleOnTopOfConcurrentDatabaseWrite() {
+        writeBehind.toggle(1L);
+        database.put(1L, new VersionedStatus(1L, Status.UNAVAILABLE, 1));
+
+        writeBehind.flush();
+        assertEquals(Optional.of(Status.AVAILABLE), writeBehind.pendingStatus(1L));
+        verify(bookChangeRepository).appendChanges(BookChangeType.STATUS_CHANGED, List.of());
+
+        writeBehind.flush();
+        assertEquals(new VersionedStatus(1L, Status.AVAILABLE, 2), database.get(1L));
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    public void rebaseAfterCommit_ReplaysPendingTogglesOnConditionalWrite() {
+        writeBehind.toggle(1L);
+        writeBehind.toggle(2L);
+        writeBehind.toggle(2L);
+        database.put(1L, new VersionedStatus(1L, Status.UNAVAILABLE, 1));
+        database.put(2L, new VersionedStatus(2L, Status.UNAVAILABLE, 1));
+
+        writeBehind.rebaseAfterCommit(List.of(1L, 2L));
+
+        assertEquals(Optional.of(Status.AVAILABLE), writeBehind.pendingStatus(1L));
+        assertEquals(Optional.empty(), writeBehind.pendingStatus(2L));
+        verify(catalogueVersion, times(2)).bump();
+        writeBehind.flush();
+        assertEquals(List.of(List.of(new VersionedStatus(1L, Status.AVAILABLE, 1))), writes);
+        assertEquals(Status.UNAVAILABLE, database.get(2L).status());
+    }
+
+    @Test
+    public void rebaseAfterCommit_DuringFlushWaitsForItsOutcome() {
+        writeBehind.toggle(1L);
+        doAnswer(invocation -> {
+            Object updated = ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null);
+            database.put(1L, new VersionedStatus(1L, Status.AVAILABLE, 2));
+            writeBehind.rebaseAfterCommit(List.of(1L));
+            return updated;
+        }).when(transactionTemplate).execute(any());
+
+        writeBehind.flush();
+
+        assertEquals(new VersionedStatus(1L, Status.AVAILABLE, 2), database.get(1L));
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    public void flush_FailureKeepsChangesPending() {
+        writeBehind.toggle(1L);
+        doThrow(new QueryTimeoutException("database unavailable")).when(transactionTemplate).execute(any());
+
+        writeBehind.flush();
+        assertEquals(Status.AVAILABLE, database.get(1L).status());
+        assertEquals(1, writeBehind.pendingCount());
+        assertEquals(Optional.of(Status.UNAVAILABLE), writeBehind.pendingStatus(1L));
+
+        runTransactions();
+        writeBehind.flush();
+        assertEquals(Status.UNAVAILABLE, database.get(1L).status());
+        assertEquals(0, writeBehind.pendingCount());
+    }
+
+    @Test
+    public void shutdown_FlushesPendingChanges() {
+        writeBehind.toggle(2L);
+        writeBehind.flushOnShutdown();
+        assertEquals(Status.UNAVAILABLE, database.get(2L).status());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactions() {
+        doAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+    }
+}
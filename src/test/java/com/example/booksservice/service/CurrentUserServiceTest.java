@@ -0,0 +1,57 @@
+package com.example.booksservice.service;
+
+import com.example.booksservice.feignclient.ResilientUserClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class CurrentUserServiceTest {
+    private static final String TOKEN = "token";
+
+    @Mock
+    private ResilientUserClient userClient;
+
+    private CurrentUserService currentUserService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        currentUserService = new CurrentUserService(userClient, 30);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void getCurrentUserId_FromTokenClaim() {
+        authenticate("42");
+        assertEquals(42L, currentUserService.getCurrentUserId());
+        verifyNoInteractions(userClient);
+    }
+
+    @Test
+    public void getCurrentUserId_FallsBackToUserClientOncePerToken() {
+        authenticate(null);
+        when(userClient.getCurrentUserId()).thenReturn(7L);
+        assertEquals(7L, currentUserService.getCurrentUserId());
+        assertEquals(7L, currentUserService.getCurrentUserId());
+        verify(userClient, times(1)).getCurrentUserId();
+    }
+
+    private void authenticate(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                userId, TOKEN, List.of(new SimpleGrantedAuthority("ADMIN"))));
+    }
+}